@@ -0,0 +1,98 @@
+package org.icij.datashare.com;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * compact encoding of messages :
+ * <pre>
+ * magic (1 byte) | type ordinal (1 byte) | date epoch millis (8 bytes) | number of fields (1 byte)
+ * then for each field : field ordinal (1 byte) | value length (4 bytes) | UTF-8 value
+ * </pre>
+ */
+public class BinaryMessageCodec implements MessageCodec {
+    public static final BinaryMessageCodec INSTANCE = new BinaryMessageCodec();
+    static final byte MAGIC = (byte) 0xD5; // never the first byte of a json text
+    private static final Message.Type[] TYPES = Message.Type.values();
+    private static final Message.Field[] FIELDS = Message.Field.values();
+
+    private BinaryMessageCodec() {}
+
+    @Override
+    public byte[] encode(Message message) {
+        byte[][] values = new byte[message.content.size()][];
+        int size = 11;
+        int i = 0;
+        for (String value : message.content.values()) {
+            values[i] = value.getBytes(UTF_8);
+            size += 5 + values[i++].length;
+        }
+        byte[] bytes = new byte[size];
+        bytes[0] = MAGIC;
+        bytes[1] = (byte) message.type.ordinal();
+        putLong(bytes, 2, message.date.getTime());
+        bytes[10] = (byte) values.length;
+        int position = 11;
+        i = 0;
+        for (Message.Field field : message.content.keySet()) {
+            bytes[position] = (byte) field.ordinal();
+            putInt(bytes, position + 1, values[i].length);
+            System.arraycopy(values[i], 0, bytes, position + 5, values[i].length);
+            position += 5 + values[i++].length;
+        }
+        return bytes;
+    }
+
+    @Override
+    public Message decode(byte[] bytes) throws IOException {
+        if (bytes.length < 11 || bytes[0] != MAGIC) {
+            throw new IOException("not a binary message");
+        }
+        try {
+            Message message = new Message(TYPES[bytes[1]], new Date(getLong(bytes, 2)));
+            Map<Message.Field, String> content = message.content;
+            int position = 11;
+            for (int i = 0; i < bytes[10]; i++) {
+                int length = getInt(bytes, position + 1);
+                content.put(FIELDS[bytes[position]], new String(bytes, position + 5, length, UTF_8));
+                position += 5 + length;
+            }
+            return message;
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("truncated binary message", e);
+        }
+    }
+
+    private static void putLong(byte[] bytes, int offset, long value) {
+        for (int i = 7; i >= 0; i--) {
+            bytes[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    private static long getLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xff);
+        }
+        return value;
+    }
+
+    private static void putInt(byte[] bytes, int offset, int value) {
+        for (int i = 3; i >= 0; i--) {
+            bytes[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    private static int getInt(byte[] bytes, int offset) {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xff);
+        }
+        return value;
+    }
+}
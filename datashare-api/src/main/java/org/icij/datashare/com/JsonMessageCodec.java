@@ -0,0 +1,33 @@
+package org.icij.datashare.com;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.util.HashMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * json encoding of {@link Message#toJson()}, read with a shared reader
+ */
+public class JsonMessageCodec implements MessageCodec {
+    public static final JsonMessageCodec INSTANCE = new JsonMessageCodec();
+    private static final ObjectReader READER = new ObjectMapper().readerFor(HashMap.class);
+
+    private JsonMessageCodec() {}
+
+    @Override
+    public byte[] encode(Message message) {
+        return message.toJson().getBytes(UTF_8);
+    }
+
+    @Override
+    public Message decode(byte[] bytes) throws IOException {
+        return new Message(READER.<HashMap>readValue(bytes));
+    }
+
+    public Message decode(String json) throws IOException {
+        return new Message(READER.<HashMap>readValue(json));
+    }
+}
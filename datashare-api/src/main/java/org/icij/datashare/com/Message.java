@@ -1,11 +1,11 @@
 package org.icij.datashare.com;
 
 import java.util.Date;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 
-import static java.lang.String.format;
 import static org.icij.datashare.com.Message.Field.*;
 import static org.joda.time.format.ISODateTimeFormat.dateTime;
 
@@ -15,7 +15,7 @@ public class Message {
 
     public final Date date;
     public final Type type;
-    public final Map<Field, String> content = new HashMap<>();
+    public final Map<Field, String> content = new EnumMap<>(Field.class);
 
     public Message(final HashMap map) {
         HashMap clone = (HashMap) map.clone();
@@ -28,9 +28,15 @@ public class Message {
     public Message(final Type type, final Date date) {this.type = type; this.date = date;}
 
     public String toJson() {
-        return "{" + content.entrySet().stream().map(e -> format("\"%s\":\"%s\"", e.getKey(), e.getValue())).
-                reduce(format("\"%s\":\"%s\",\"%s\":\"%s\"", TYPE, type, DATE, dateTime().print(date.getTime())),
-                        (s1, s2) -> s1 + "," + s2) + "}";
+        StringBuilder json = new StringBuilder(64 + content.size() * 64).append('{');
+        appendField(json, TYPE, type.name()).append(',');
+        appendField(json, DATE, dateTime().print(date.getTime()));
+        content.forEach((field, value) -> appendField(json.append(','), field, value));
+        return json.append('}').toString();
+    }
+
+    private static StringBuilder appendField(StringBuilder json, Field field, String value) {
+        return json.append('"').append(field.name()).append("\":\"").append(value).append('"');
     }
 
     public Message add(Field k, String v) {
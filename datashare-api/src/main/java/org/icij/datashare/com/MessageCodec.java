@@ -0,0 +1,24 @@
+package org.icij.datashare.com;
+
+import java.io.IOException;
+
+/**
+ * encodes messages sent on the message bus. Implementations are thread safe.
+ *
+ * the codec used by publishers is chosen with the messageBusCodec property (json or binary),
+ * subscribers detect the encoding of each received message.
+ */
+public interface MessageCodec {
+    String CODEC_OPT = "messageBusCodec";
+
+    byte[] encode(Message message);
+    Message decode(byte[] bytes) throws IOException;
+
+    static MessageCodec create(String name) {
+        return "binary".equalsIgnoreCase(name) ? BinaryMessageCodec.INSTANCE : JsonMessageCodec.INSTANCE;
+    }
+
+    static MessageCodec detect(byte[] bytes) {
+        return bytes.length > 0 && bytes[0] == BinaryMessageCodec.MAGIC ? BinaryMessageCodec.INSTANCE : JsonMessageCodec.INSTANCE;
+    }
+}
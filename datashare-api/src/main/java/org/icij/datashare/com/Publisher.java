@@ -1,5 +1,8 @@
 package org.icij.datashare.com;
 
+/**
+ * implementations must be thread safe : publishers are shared by extraction threads
+ */
 public interface Publisher {
     void publish(Channel channel, Message message);
 }
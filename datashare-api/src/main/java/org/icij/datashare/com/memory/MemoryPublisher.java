@@ -0,0 +1,40 @@
+package org.icij.datashare.com.memory;
+
+import com.google.inject.Singleton;
+import org.icij.datashare.com.Channel;
+import org.icij.datashare.com.Message;
+import org.icij.datashare.com.Publisher;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * in process message bus for single node deployments : messages are given to the subscribers
+ * of the channel without serialization nor redis. The subscribers queue them in a bounded mailbox :
+ * publish waits when a subscriber is late, which slows down the producers.
+ *
+ * like redis pub/sub, messages published when there is no subscriber are lost.
+ */
+@Singleton
+public class MemoryPublisher implements Publisher {
+    public static final String MEMORY_BUS_OPT = "messageBusMemory";
+    private final Map<Channel, List<Consumer<Message>>> subscribers = new ConcurrentHashMap<>();
+
+    @Override
+    public void publish(Channel channel, Message message) {
+        subscribers.getOrDefault(channel, emptyList()).forEach(s -> s.accept(message));
+    }
+
+    void subscribe(Channel channel, Consumer<Message> subscriber) {
+        subscribers.computeIfAbsent(channel, c -> new CopyOnWriteArrayList<>()).add(subscriber);
+    }
+
+    void unsubscribe(Channel channel, Consumer<Message> subscriber) {
+        subscribers.getOrDefault(channel, emptyList()).remove(subscriber);
+    }
+}
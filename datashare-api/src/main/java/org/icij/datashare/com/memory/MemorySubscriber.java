@@ -0,0 +1,79 @@
+package org.icij.datashare.com.memory;
+
+import org.icij.datashare.com.Channel;
+import org.icij.datashare.com.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+import static org.icij.datashare.com.Message.Type.SHUTDOWN;
+
+/**
+ * same as {@link org.icij.datashare.com.redis.RedisSubscriber} for the {@link MemoryPublisher} :
+ * run() returns when a SHUTDOWN message is received.
+ *
+ * the publishers put the messages in a bounded mailbox, the callback is called in the run() thread.
+ * When the callback is slower than the publishers and the mailbox is full, the publishers wait for room :
+ * publishing on the memory bus must not be done from a thread that cannot block (e.g. the elasticsearch client I/O thread).
+ */
+public class MemorySubscriber implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(MemorySubscriber.class);
+    static final int DEFAULT_MAILBOX_CAPACITY = 1000;
+    private final MemoryPublisher bus;
+    private final Consumer<Message> callback;
+    private final Runnable subscribedCallback;
+    private final BlockingQueue<Message> mailbox;
+    private Channel channel;
+
+    public MemorySubscriber(final MemoryPublisher bus, final Consumer<Message> callback, final Runnable subscribedCallback) {
+        this(bus, callback, subscribedCallback, DEFAULT_MAILBOX_CAPACITY);
+    }
+
+    MemorySubscriber(final MemoryPublisher bus, final Consumer<Message> callback, final Runnable subscribedCallback, int mailboxCapacity) {
+        this.bus = bus;
+        this.callback = callback;
+        this.subscribedCallback = subscribedCallback;
+        this.mailbox = new LinkedBlockingQueue<>(mailboxCapacity);
+    }
+
+    public MemorySubscriber subscribe(Channel channel) {
+        this.channel = channel;
+        return this;
+    }
+
+    @Override
+    public void run() {
+        Consumer<Message> listener = this::deliver;
+        bus.subscribe(channel, listener);
+        try {
+            subscribedCallback.run();
+            Message message;
+            do {
+                message = mailbox.take();
+                try {
+                    callback.accept(message);
+                } catch (RuntimeException e) {
+                    logger.error("cannot handle message " + message, e);
+                }
+            } while (message.type != SHUTDOWN);
+            logger.info("Shutdown called. Unsubscribe done.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            bus.unsubscribe(channel, listener);
+            mailbox.clear(); // releases the publishers waiting for room, like redis messages without subscriber are lost
+        }
+    }
+
+    private void deliver(Message message) {
+        try {
+            mailbox.put(message);
+        } catch (InterruptedException e) {
+            logger.warn("interrupted while publishing {}, it is lost", message);
+            Thread.currentThread().interrupt();
+        }
+    }
+}
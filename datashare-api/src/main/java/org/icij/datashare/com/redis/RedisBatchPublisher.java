@@ -0,0 +1,153 @@
+package org.icij.datashare.com.redis;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.com.Channel;
+import org.icij.datashare.com.JsonMessageCodec;
+import org.icij.datashare.com.Message;
+import org.icij.datashare.com.MessageCodec;
+import org.icij.datashare.com.Publisher;
+import org.icij.datashare.function.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Pipeline;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.lang.Integer.parseInt;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.icij.datashare.com.Message.Type.SHUTDOWN;
+
+/**
+ * publisher that queues messages without locking the callers. A flusher thread sends them
+ * in batches of messageBusBatchSize with a redis pipeline, on a connection taken from a pool.
+ *
+ * messages are published in the order of the calls. A SHUTDOWN message being the last of a stream,
+ * its publication waits for all the queued messages to be sent.
+ *
+ * at most messageBusQueueCapacity messages are waiting to be sent, the callers are blocked beyond.
+ * When redis cannot be reached, the batch is kept and sent again after a backoff, so the messages
+ * are published at least once.
+ */
+@Singleton
+public class RedisBatchPublisher implements Publisher, Closeable {
+    public static final String BATCH_SIZE_OPT = "messageBusBatchSize";
+    public static final String QUEUE_CAPACITY_OPT = "messageBusQueueCapacity";
+    static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+    private static final Logger logger = LoggerFactory.getLogger(RedisBatchPublisher.class);
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    static final long MIN_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final JedisPool pool;
+    private final int batchSize;
+    private final int queueCapacity;
+    private final MessageCodec codec;
+    private final ConcurrentLinkedQueue<Pair<Channel, Message>> queue = new ConcurrentLinkedQueue<>();
+    private final Semaphore available;
+    private final List<Pair<Channel, Message>> batch; // kept until it is sent
+    private final Thread flusher;
+    private volatile boolean closed = false;
+
+    @Inject
+    public RedisBatchPublisher(PropertiesProvider propertiesProvider) {
+        this(new JedisPool(new JedisPoolConfig(), propertiesProvider.getProperties().getProperty("messageBusAddress")),
+                parseInt(propertiesProvider.get(BATCH_SIZE_OPT).orElse("100")),
+                MessageCodec.create(propertiesProvider.get(MessageCodec.CODEC_OPT).orElse("json")),
+                propertiesProvider.get(QUEUE_CAPACITY_OPT).map(Integer::parseInt).orElse(DEFAULT_QUEUE_CAPACITY));
+    }
+
+    RedisBatchPublisher(final JedisPool pool, final int batchSize) {
+        this(pool, batchSize, JsonMessageCodec.INSTANCE, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    RedisBatchPublisher(final JedisPool pool, final int batchSize, final MessageCodec codec, final int queueCapacity) {
+        this.pool = pool;
+        this.batchSize = batchSize;
+        this.codec = codec;
+        this.queueCapacity = Math.max(queueCapacity, batchSize);
+        this.available = new Semaphore(this.queueCapacity);
+        this.batch = new ArrayList<>(batchSize);
+        this.flusher = new Thread(this::flushLoop, "redis-publisher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    @Override
+    public void publish(Channel channel, Message message) {
+        available.acquireUninterruptibly(); // waits for the flusher when the queue is full
+        queue.offer(new Pair<>(channel, message));
+        if (message.type == SHUTDOWN) {
+            publishQueued();
+        } else if (queued() >= batchSize) {
+            LockSupport.unpark(flusher);
+        }
+    }
+
+    int queued() {
+        return queueCapacity - available.availablePermits();
+    }
+
+    private void flushLoop() {
+        long backoff = 0;
+        while (!closed) {
+            try {
+                publishQueued();
+                backoff = 0;
+            } catch (RuntimeException e) {
+                backoff = backoff == 0 ? MIN_BACKOFF_NANOS : Math.min(2 * backoff, MAX_BACKOFF_NANOS);
+                logger.error("cannot publish {} message(s), retrying in {}ms", queued(), TimeUnit.NANOSECONDS.toMillis(backoff), e);
+            }
+            if (backoff > 0) {
+                parkUntil(System.nanoTime() + backoff); // the publishers must not wake the flusher up
+            } else if (queued() < batchSize) {
+                LockSupport.parkNanos(this, FLUSH_INTERVAL_NANOS);
+            }
+        }
+    }
+
+    private void parkUntil(long deadline) {
+        for (long remaining = deadline - System.nanoTime(); remaining > 0 && !closed; remaining = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(this, remaining);
+        }
+    }
+
+    private synchronized void publishQueued() {
+        while (!batch.isEmpty() || !queue.isEmpty()) {
+            Pair<Channel, Message> message;
+            while (batch.size() < batchSize && (message = queue.poll()) != null) {
+                batch.add(message);
+            }
+            try (Jedis redis = pool.getResource()) {
+                Pipeline pipeline = redis.pipelined();
+                for (Pair<Channel, Message> batchMessage : batch) {
+                    pipeline.publish(batchMessage._1().name().getBytes(UTF_8), codec.encode(batchMessage._2()));
+                }
+                pipeline.sync();
+            }
+            available.release(batch.size());
+            batch.clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(flusher);
+        try {
+            publishQueued();
+        } finally {
+            pool.close();
+        }
+    }
+}
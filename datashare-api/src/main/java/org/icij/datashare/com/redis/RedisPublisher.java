@@ -3,22 +3,29 @@ package org.icij.datashare.com.redis;
 import com.google.inject.Inject;
 import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.com.Channel;
+import org.icij.datashare.com.JsonMessageCodec;
 import org.icij.datashare.com.Message;
+import org.icij.datashare.com.MessageCodec;
 import org.icij.datashare.com.Publisher;
 import redis.clients.jedis.Jedis;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 public class RedisPublisher implements Publisher {
     private final Jedis redis;
+    private final MessageCodec codec;
 
     @Inject
     public RedisPublisher(PropertiesProvider propertiesProvider) {
         this.redis = new Jedis(propertiesProvider.getProperties().getProperty("messageBusAddress"));
+        this.codec = MessageCodec.create(propertiesProvider.get(MessageCodec.CODEC_OPT).orElse("json"));
     }
 
-    RedisPublisher(final Jedis redis) { this.redis = redis;}
+    RedisPublisher(final Jedis redis) { this(redis, JsonMessageCodec.INSTANCE);}
+    RedisPublisher(final Jedis redis, final MessageCodec codec) { this.redis = redis; this.codec = codec;}
 
     @Override
-    public void publish(Channel channel, Message message) {
-        redis.publish(channel.name(), message.toJson());
+    public synchronized void publish(Channel channel, Message message) { // jedis instance is not thread safe
+        redis.publish(channel.name().getBytes(UTF_8), codec.encode(message));
     }
 }
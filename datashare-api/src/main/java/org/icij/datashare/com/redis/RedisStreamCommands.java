@@ -0,0 +1,120 @@
+package org.icij.datashare.com.redis;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+
+/**
+ * redis streams commands (redis &gt;= 5). Jedis 2.9 has no API for them so they are sent through lua scripts,
+ * loaded once and then called by their sha1.
+ *
+ * entries have a single "message" field containing the json message.
+ */
+class RedisStreamCommands {
+    static final String MESSAGE_FIELD = "message";
+
+    private static final Script XADD = new Script("if ARGV[1] == '0' then " +
+            "return redis.call('XADD', KEYS[1], '*', ARGV[2], ARGV[3]) end " +
+            "return redis.call('XADD', KEYS[1], 'MAXLEN', '~', ARGV[1], '*', ARGV[2], ARGV[3])");
+    private static final Script XGROUP_CREATE = new Script("local r = redis.pcall('XGROUP', 'CREATE', KEYS[1], ARGV[1], '0', 'MKSTREAM') " +
+            "if type(r) == 'table' and r.err and not string.find(r.err, 'BUSYGROUP') then return r end " +
+            "return 'OK'");
+    private static final Script XREADGROUP = new Script("return redis.call('XREADGROUP', 'GROUP', ARGV[1], ARGV[2], 'COUNT', ARGV[3], 'STREAMS', KEYS[1], ARGV[4])");
+    private static final Script XCLAIM = new Script("local pending = redis.call('XPENDING', KEYS[1], ARGV[1], '-', '+', ARGV[4]) " +
+            "local ids = {} " +
+            "for _, p in ipairs(pending) do if p[3] >= tonumber(ARGV[3]) then table.insert(ids, p[1]) end end " +
+            "if #ids == 0 then return {} end " +
+            "return redis.call('XCLAIM', KEYS[1], ARGV[1], ARGV[2], ARGV[3], unpack(ids))");
+    private static final Script XACK = new Script("return redis.call('XACK', KEYS[1], ARGV[1], unpack(ARGV, 2))");
+
+    /**
+     * the script is loaded with SCRIPT LOAD on its first call, and again if redis has lost it (restart, SCRIPT FLUSH)
+     */
+    static class Script {
+        private final String source;
+        private volatile String sha = null;
+
+        Script(String source) {
+            this.source = source;
+        }
+
+        Object eval(Jedis redis, List<String> keys, List<String> args) {
+            if (sha == null) {
+                sha = redis.scriptLoad(source);
+            }
+            try {
+                return redis.evalsha(sha, keys, args);
+            } catch (JedisNoScriptException e) {
+                sha = redis.scriptLoad(source);
+                return redis.evalsha(sha, keys, args);
+            }
+        }
+    }
+
+    static class Entry {
+        final String id;
+        final String message;
+
+        Entry(String id, String message) {
+            this.id = id;
+            this.message = message;
+        }
+    }
+
+    static String add(Jedis redis, String stream, long maxLength, String message) {
+        return (String) XADD.eval(redis, singletonList(stream), asList(String.valueOf(maxLength), MESSAGE_FIELD, message));
+    }
+
+    static void createGroup(Jedis redis, String stream, String group) {
+        XGROUP_CREATE.eval(redis, singletonList(stream), singletonList(group));
+    }
+
+    /**
+     * @param fromId "&gt;" for new entries, "0" for the entries pending for this consumer
+     */
+    static List<Entry> read(Jedis redis, String stream, String group, String consumer, int count, String fromId) {
+        Object reply = XREADGROUP.eval(redis, singletonList(stream), asList(group, consumer, String.valueOf(count), fromId));
+        if (reply == null || ((List) reply).isEmpty()) {
+            return emptyList();
+        }
+        List streamReply = (List) ((List) reply).get(0);
+        return entries((List) streamReply.get(1));
+    }
+
+    /**
+     * claims up to count entries pending for more than minIdleMillis in the group
+     */
+    static List<Entry> claim(Jedis redis, String stream, String group, String consumer, long minIdleMillis, int count) {
+        return entries((List) XCLAIM.eval(redis, singletonList(stream),
+                asList(group, consumer, String.valueOf(minIdleMillis), String.valueOf(count))));
+    }
+
+    static void ack(Jedis redis, String stream, String group, List<String> ids) {
+        List<String> args = new ArrayList<>(ids.size() + 1);
+        args.add(group);
+        args.addAll(ids);
+        XACK.eval(redis, singletonList(stream), args);
+    }
+
+    private static List<Entry> entries(List reply) {
+        List<Entry> entries = new ArrayList<>(reply.size());
+        for (Object entryReply : reply) {
+            List entry = (List) entryReply;
+            List fields = entry.size() > 1 ? (List) entry.get(1) : emptyList(); // fields are nil for deleted entries
+            String message = null;
+            for (int i = 0; i + 1 < fields.size(); i += 2) {
+                if (MESSAGE_FIELD.equals(fields.get(i))) {
+                    message = (String) fields.get(i + 1);
+                }
+            }
+            entries.add(new Entry((String) entry.get(0), message));
+        }
+        return entries;
+    }
+}
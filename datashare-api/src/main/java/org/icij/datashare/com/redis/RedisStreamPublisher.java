@@ -0,0 +1,60 @@
+package org.icij.datashare.com.redis;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.com.Channel;
+import org.icij.datashare.com.Message;
+import org.icij.datashare.com.Publisher;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+
+import java.io.Closeable;
+
+import static java.lang.Long.parseLong;
+import static org.icij.datashare.com.Message.Type.EXTRACT_NLP;
+
+/**
+ * publishes messages in a redis stream named after the channel, so that they are kept
+ * until a consumer group reads and acknowledges them (see {@link RedisStreamSubscriber}).
+ *
+ * the stream is trimmed to about messageBusStreamMaxLength entries (0 for no limit).
+ *
+ * the control messages (SHUTDOWN, INIT_MONITORING) are for every consumer, they are broadcast
+ * on the pub/sub channel of the same name instead.
+ */
+@Singleton
+public class RedisStreamPublisher implements Publisher, Closeable {
+    public static final String STREAMS_OPT = "messageBusStreams";
+    public static final String STREAM_MAX_LENGTH_OPT = "messageBusStreamMaxLength";
+    private final JedisPool pool;
+    private final long maxLength;
+
+    @Inject
+    public RedisStreamPublisher(PropertiesProvider propertiesProvider) {
+        this(new JedisPool(new JedisPoolConfig(), propertiesProvider.getProperties().getProperty("messageBusAddress")),
+                parseLong(propertiesProvider.get(STREAM_MAX_LENGTH_OPT).orElse("0")));
+    }
+
+    RedisStreamPublisher(final JedisPool pool, final long maxLength) {
+        this.pool = pool;
+        this.maxLength = maxLength;
+    }
+
+    @Override
+    public void publish(Channel channel, Message message) {
+        try (Jedis redis = pool.getResource()) {
+            if (message.type == EXTRACT_NLP) {
+                RedisStreamCommands.add(redis, channel.name(), maxLength, message.toJson());
+            } else {
+                redis.publish(channel.name(), message.toJson());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+}
@@ -0,0 +1,217 @@
+package org.icij.datashare.com.redis;
+
+import org.icij.datashare.com.Channel;
+import org.icij.datashare.com.JsonMessageCodec;
+import org.icij.datashare.com.Message;
+import org.icij.datashare.com.MessageCodec;
+import org.icij.datashare.com.redis.RedisStreamCommands.Entry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.BinaryJedisPubSub;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.icij.datashare.com.Message.Type.SHUTDOWN;
+
+/**
+ * reads a redis stream as a member of a consumer group : each message is delivered to one consumer
+ * of the group, and stays pending until it is acknowledged with {@link #acknowledge(Message)}.
+ *
+ * when starting, the consumer first replays its own pending messages. Messages pending for more
+ * than claimTimeoutMillis in other consumers (i.e. crashed ones) are regularly claimed.
+ *
+ * scripts cannot block so the stream is polled when it is empty.
+ *
+ * control messages are broadcast on the pub/sub channel named after the stream (see {@link RedisStreamPublisher}).
+ * They are delivered in the subscriber thread, SHUTDOWN once the group has no more new entries to read.
+ */
+public class RedisStreamSubscriber implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(RedisStreamSubscriber.class);
+    private static final long POLL_INTERVAL_MILLIS = 200;
+    private static final long SUBSCRIBE_TIMEOUT_SECONDS = 10;
+    private final JedisPool pool;
+    private final String group;
+    private final String consumer;
+    private final int count;
+    private final long claimTimeoutMillis;
+    private final Consumer<Message> callback;
+    private final Runnable subscribedCallback;
+    private final Map<Message, String> pendingIds = Collections.synchronizedMap(new IdentityHashMap<>());
+    private final Set<String> deliveredIds = ConcurrentHashMap.newKeySet(); // not to deliver twice our own claimed messages
+    private final Queue<Message> controlMessages = new ConcurrentLinkedQueue<>();
+    private String stream;
+
+    public RedisStreamSubscriber(final JedisPool pool, final String group, final String consumer, final int count,
+                                 final long claimTimeoutMillis, final Consumer<Message> callback, final Runnable subscribedCallback) {
+        this.pool = pool;
+        this.group = group;
+        this.consumer = consumer;
+        this.count = count;
+        this.claimTimeoutMillis = claimTimeoutMillis;
+        this.callback = callback;
+        this.subscribedCallback = subscribedCallback;
+    }
+
+    public RedisStreamSubscriber subscribe(Channel channel) {
+        this.stream = channel.name();
+        return this;
+    }
+
+    @Override
+    public void run() {
+        ControlListener controlListener = new ControlListener();
+        try (Jedis redis = pool.getResource()) {
+            RedisStreamCommands.createGroup(redis, stream, group);
+            subscribeControl(controlListener);
+            subscribedCallback.run();
+
+            boolean shutdown = false;
+            String lastId = "0";
+            for (List<Entry> pending; !shutdown && !(pending = RedisStreamCommands.read(redis, stream, group, consumer, count, lastId)).isEmpty(); ) {
+                logger.info("consumer {} of group {} replays {} pending message(s)", consumer, group, pending.size());
+                shutdown = deliver(pending);
+                lastId = pending.get(pending.size() - 1).id;
+            }
+            long lastClaim = 0;
+            Message shutdownMessage = null;
+            while (!shutdown && !Thread.currentThread().isInterrupted()) {
+                for (Message control; (control = controlMessages.poll()) != null; ) {
+                    if (control.type == SHUTDOWN) {
+                        shutdownMessage = control; // the entries published before are read first
+                    } else {
+                        callback.accept(control);
+                    }
+                }
+                List<Entry> entries;
+                boolean claimed = System.currentTimeMillis() - lastClaim > claimTimeoutMillis / 10;
+                if (claimed) {
+                    lastClaim = System.currentTimeMillis();
+                    entries = RedisStreamCommands.claim(redis, stream, group, consumer, claimTimeoutMillis, count);
+                    if (!entries.isEmpty()) {
+                        logger.info("consumer {} of group {} claimed {} message(s)", consumer, group, entries.size());
+                    }
+                } else {
+                    entries = RedisStreamCommands.read(redis, stream, group, consumer, count, ">");
+                }
+                shutdown = deliver(entries);
+                if (entries.isEmpty() && !claimed) {
+                    if (shutdownMessage != null) {
+                        callback.accept(shutdownMessage);
+                        shutdown = true;
+                    } else {
+                        Thread.sleep(POLL_INTERVAL_MILLIS);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (controlListener.isSubscribed()) {
+                controlListener.unsubscribe();
+            }
+        }
+        logger.info("consumer {} of group {} stopped reading {}", consumer, group, stream);
+    }
+
+    private void subscribeControl(ControlListener controlListener) throws InterruptedException {
+        Thread controlThread = new Thread(() -> {
+            try (Jedis redis = pool.getResource()) {
+                redis.subscribe(controlListener, stream.getBytes(UTF_8));
+            } catch (RuntimeException e) {
+                logger.error("consumer " + consumer + " of group " + group + " cannot receive control messages", e);
+            }
+        }, "control-" + stream + "-" + consumer);
+        controlThread.setDaemon(true);
+        controlThread.start();
+        if (!controlListener.subscribed.await(SUBSCRIBE_TIMEOUT_SECONDS, SECONDS)) {
+            logger.warn("consumer {} of group {} is not subscribed to control messages yet", consumer, group);
+        }
+    }
+
+    public void acknowledge(Message message) {
+        String id = pendingIds.remove(message);
+        if (id != null) {
+            deliveredIds.remove(id);
+            try (Jedis redis = pool.getResource()) {
+                RedisStreamCommands.ack(redis, stream, group, singletonList(id));
+            }
+        }
+    }
+
+    /**
+     * the message has not been processed, it will be claimed again after claimTimeoutMillis
+     */
+    public void release(Message message) {
+        String id = pendingIds.remove(message);
+        if (id != null) {
+            deliveredIds.remove(id);
+        }
+    }
+
+    private boolean deliver(List<Entry> entries) {
+        boolean shutdown = false;
+        for (Entry entry : entries) {
+            if (!deliveredIds.add(entry.id)) {
+                continue;
+            }
+            Message message = parse(entry);
+            if (message == null) {
+                try (Jedis redis = pool.getResource()) {
+                    RedisStreamCommands.ack(redis, stream, group, singletonList(entry.id));
+                }
+                deliveredIds.remove(entry.id);
+                continue;
+            }
+            pendingIds.put(message, entry.id);
+            callback.accept(message);
+            shutdown |= message.type == SHUTDOWN;
+        }
+        return shutdown;
+    }
+
+    private class ControlListener extends BinaryJedisPubSub {
+        private final CountDownLatch subscribed = new CountDownLatch(1);
+
+        @Override
+        public void onSubscribe(byte[] channel, int subscribedChannels) {
+            subscribed.countDown();
+        }
+
+        @Override
+        public void onMessage(byte[] channel, byte[] message) {
+            try {
+                controlMessages.offer(MessageCodec.detect(message).decode(message));
+            } catch (IOException | RuntimeException e) {
+                logger.error("cannot deserialize control message " + new String(message, UTF_8), e);
+            }
+        }
+    }
+
+    private Message parse(Entry entry) {
+        if (entry.message == null) {
+            logger.warn("entry {} of {} has no message", entry.id, stream);
+            return null;
+        }
+        try {
+            return JsonMessageCodec.INSTANCE.decode(entry.message);
+        } catch (IOException e) {
+            logger.error("cannot deserialize json message " + entry.message, e);
+            return null;
+        }
+    }
+}
@@ -1,17 +1,17 @@
 package org.icij.datashare.com.redis;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.icij.datashare.com.Channel;
 import org.icij.datashare.com.Message;
+import org.icij.datashare.com.MessageCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.BinaryJedisPubSub;
 
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.function.Consumer;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.icij.datashare.com.Message.Type.SHUTDOWN;
 
 public class RedisSubscriber implements Runnable {
@@ -40,10 +40,10 @@ public class RedisSubscriber implements Runnable {
 
     @Override
     public void run() {
-        redis.subscribe(new JedisListener(callback, subscribedCallback), channel.name());
+        redis.subscribe(new JedisListener(callback, subscribedCallback), channel.name().getBytes(UTF_8));
     }
 
-    static class JedisListener extends JedisPubSub {
+    static class JedisListener extends BinaryJedisPubSub {
         private final Consumer<Message> callback;
         private final Runnable subscribedCallback;
 
@@ -53,22 +53,21 @@ public class RedisSubscriber implements Runnable {
         }
 
         @Override
-        public void onSubscribe(String channel, int subscribedChannels) {
+        public void onSubscribe(byte[] channel, int subscribedChannels) {
             subscribedCallback.run();
         }
 
         @Override
-        public void onMessage(String channel, String message) {
+        public void onMessage(byte[] channel, byte[] message) {
             try {
-                HashMap result = new ObjectMapper().readValue(message, HashMap.class);
-                Message msg = new Message(result);
+                Message msg = MessageCodec.detect(message).decode(message);
                 if (msg.type == SHUTDOWN) {
                     unsubscribe();
                     logger.info("Shutdown called. Unsubscribe done.");
                 }
                 callback.accept(msg);
             } catch (IOException e) {
-                logger.error("cannot deserialize json message " + message, e);
+                logger.error("cannot deserialize message " + new String(message, UTF_8), e);
             }
         }
     }
@@ -1,8 +1,14 @@
 package org.icij.datashare.json;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.filter.FilteringGeneratorDelegate;
+import com.fasterxml.jackson.core.filter.TokenFilter;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
 import org.icij.datashare.Entity;
@@ -12,10 +18,17 @@ import org.icij.datashare.text.indexing.IndexRoot;
 import org.icij.datashare.text.indexing.IndexType;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 
 import static com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility.ANY;
 import static com.fasterxml.jackson.annotation.PropertyAccessor.FIELD;
@@ -74,6 +87,65 @@ public class JsonObjectMapper {
         }
     }
 
+    /**
+     * Write the JSON representation of an entity followed by extra fields, without intermediate String or Map
+     *
+     * @param obj the object to convert to JSON
+     * @param extraFields fields added at the end of the JSON object (e.g. index join fields), replacing the object fields with the same name
+     * @param out the stream where the JSON is written
+     * @param <T> the concrete type of entity
+     */
+    public static <T extends Entity> void writeJson(T obj, Map<String, Object> extraFields, OutputStream out) throws IOException {
+        JsonGenerator jsonGenerator = MAPPER.getFactory().createGenerator(out).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try (JsonGenerator generator = new ExtraFieldsGenerator(jsonGenerator, extraFields)) {
+            MAPPER.writeValue(generator, obj);
+        }
+    }
+
+    /**
+     * Bind a JSON source to an entity, without intermediate String or Map
+     *
+     * @param id the id of the entity, replacing the id of the source
+     * @param source the JSON source bytes
+     * @param typeField the field of the source holding the entity type
+     * @param typeResolver gives the class of the entity for a type, or null if it is unknown
+     * @param <T> the concrete type of entity
+     * @return the entity or null if its type is unknown
+     */
+    public static <T extends Entity> T getObject(String id, byte[] source, int offset, int length, String typeField,
+                                                 Function<String, Class<? extends T>> typeResolver) {
+        try (JsonParser parser = MAPPER.getFactory().createParser(source, offset, length)) {
+            TokenBuffer buffer = new TokenBuffer(parser);
+            String type = null;
+            buffer.writeStartObject();
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    JsonToken value = parser.nextToken();
+                    if ("id".equals(name)) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    if (name.equals(typeField) && value == JsonToken.VALUE_STRING) {
+                        type = parser.getText();
+                    }
+                    buffer.writeFieldName(name);
+                    buffer.copyCurrentStructure(parser);
+                }
+            }
+            buffer.writeStringField("id", id);
+            buffer.writeEndObject();
+            Class<? extends T> cls = typeResolver.apply(type);
+            return cls == null ? null : MAPPER.readValue(buffer.asParser(MAPPER), cls);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot deserialize object " + id, e);
+        }
+    }
+
+    public static <T extends Entity> T getObject(String id, byte[] source, int offset, int length, Class<T> type) {
+        return getObject(id, source, offset, length, null, t -> type);
+    }
+
     public static <T extends Entity> T getObject(String id, Map<String, Object> source, Class<T> type) {
         HashMap<String, Object> map;
         if (source == null) {
@@ -99,7 +171,7 @@ public class JsonObjectMapper {
      * @return the index type String
      */
     public static String getType(Class<? extends Entity> cls){
-        return cls.getAnnotation(IndexType.class).value();
+        return METADATA.get(cls).type;
     }
 
     /**
@@ -123,17 +195,7 @@ public class JsonObjectMapper {
      * @return the index id String
      */
     public static <T extends Entity> String getId(T obj) {
-        for(Field field : obj.getClass().getDeclaredFields()) {
-            if (field.isAnnotationPresent(IndexId.class)) {
-                field.setAccessible(true);
-                try {
-                    return (String) field.get(obj);
-                } catch (IllegalAccessException e) {
-                    break;
-                }
-            }
-        }
-        return null;
+        return METADATA.get(obj.getClass()).getId(obj);
     }
 
     /**
@@ -144,30 +206,98 @@ public class JsonObjectMapper {
      * @return the parent's hash String
      */
     public static <T extends Entity> String getParent(T obj) {
-        for(Field field : obj.getClass().getDeclaredFields()) {
-            if (field.isAnnotationPresent(IndexParent.class)) {
-                field.setAccessible(true);
-                try {
-                    return (String) field.get(obj);
-                } catch (IllegalAccessException e) {
-                    break;
+        return METADATA.get(obj.getClass()).getParent(obj);
+    }
+
+    public static <T extends Entity> String getRoot(T obj) {
+        return METADATA.get(obj.getClass()).getRoot(obj);
+    }
+
+    private static final ClassValue<EntityMetadata> METADATA = new ClassValue<EntityMetadata>() {
+        @Override
+        protected EntityMetadata computeValue(Class<?> cls) { return new EntityMetadata(cls);}
+    };
+
+    /**
+     * index metadata of an entity class : its {@link IndexType} and getters of its fields annotated with
+     * {@link IndexId}, {@link IndexParent} and {@link IndexRoot}, looked up once per class
+     */
+    private static class EntityMetadata {
+        private final String type;
+        private final MethodHandle id;
+        private final MethodHandle parent;
+        private final MethodHandle root;
+
+        EntityMetadata(Class<?> cls) {
+            IndexType indexType = cls.getAnnotation(IndexType.class);
+            type = indexType == null ? null : indexType.value();
+            id = getter(cls, IndexId.class);
+            parent = getter(cls, IndexParent.class);
+            root = getter(cls, IndexRoot.class);
+        }
+
+        String getId(Object obj) { return get(id, obj);}
+        String getParent(Object obj) { return get(parent, obj);}
+        String getRoot(Object obj) { return get(root, obj);}
+
+        private static String get(MethodHandle getter, Object obj) {
+            if (getter == null) {
+                return null;
+            }
+            try {
+                return (String) getter.invokeExact(obj);
+            } catch (Throwable throwable) {
+                throw new IllegalStateException("cannot get index field of " + obj, throwable);
+            }
+        }
+
+        private static MethodHandle getter(Class<?> cls, Class<? extends Annotation> annotation) {
+            for (Field field : cls.getDeclaredFields()) {
+                if (field.isAnnotationPresent(annotation)) {
+                    try {
+                        field.setAccessible(true);
+                        return MethodHandles.lookup().unreflectGetter(field).asType(MethodType.methodType(String.class, Object.class));
+                    } catch (IllegalAccessException e) {
+                        return null;
+                    }
                 }
             }
+            return null;
         }
-        return null;
     }
 
-    public static <T extends Entity> String getRoot(T obj) {
-        for (Field field : obj.getClass().getDeclaredFields()) {
-            if (field.isAnnotationPresent(IndexRoot.class)) {
-                field.setAccessible(true);
-                try {
-                    return (String) field.get(obj);
-                } catch (IllegalAccessException e) {
-                    break;
+    /**
+     * writes the extra fields before closing the root object. The entity fields with the same names are left out.
+     */
+    private static class ExtraFieldsGenerator extends FilteringGeneratorDelegate {
+        private final Map<String, Object> extraFields;
+
+        ExtraFieldsGenerator(JsonGenerator generator, Map<String, Object> extraFields) {
+            super(generator, new RootPropertiesFilter(extraFields.keySet()), true, true);
+            this.extraFields = extraFields;
+        }
+
+        @Override
+        public void writeEndObject() throws IOException {
+            if (getFilterContext().getParent().inRoot()) {
+                ((RootPropertiesFilter) getFilter()).excluding = false;
+                for (Map.Entry<String, Object> field : extraFields.entrySet()) {
+                    writeObjectField(field.getKey(), field.getValue());
                 }
             }
+            super.writeEndObject();
+        }
+    }
+
+    private static class RootPropertiesFilter extends TokenFilter {
+        private final Set<String> excluded;
+        private boolean excluding = true;
+
+        RootPropertiesFilter(Set<String> excluded) { this.excluded = excluded;}
+
+        @Override
+        public TokenFilter includeProperty(String name) {
+            return excluding && excluded.contains(name) ? null : TokenFilter.INCLUDE_ALL;
         }
-        return null;
     }
 }
@@ -19,8 +19,11 @@ public enum Hasher {
     SHA_512 (128);
 
     public static final Charset DEFAULT_ENCODING = StandardCharsets.UTF_8;
+    private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[1024]);
     private final String algorithm;
     private final int digestLength;
+    private final ThreadLocal<MessageDigest> digest = ThreadLocal.withInitial(this::newDigest);
 
     Hasher(int dgstLen) {
         algorithm    = name().replace('_', '-');
@@ -43,11 +46,12 @@ public enum Hasher {
         if (raw == null) {
             return null;
         }
-        final StringBuilder hex = new StringBuilder(2 * raw.length);
-        for (final byte b : raw) {
-            hex.append(HEXES.charAt((b & 0xF0) >> 4)).append(HEXES.charAt((b & 0x0F)));
+        final char[] hex = new char[2 * raw.length];
+        for (int i = 0; i < raw.length; i++) {
+            hex[2 * i] = HEX_CHARS[(raw[i] & 0xF0) >> 4];
+            hex[2 * i + 1] = HEX_CHARS[raw[i] & 0x0F];
         }
-        return hex.toString();
+        return new String(hex);
     }
 
     /**
@@ -62,10 +66,85 @@ public enum Hasher {
         if (message == null || message.isEmpty()) {
             return "";
         }
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            return hash('|', message);
+        }
+        MessageDigest digest = this.digest.get();
+        digest.update(message.getBytes(charset));
+        return getHex(digest.digest());
+    }
+
+    /**
+     * Hash the UTF-8 bytes of the parts joined with separator, like hash(String.join(separator, parts))
+     * but without building the joined String. The digest and the bytes buffer are reused by thread.
+     *
+     * @param separator the char between the parts
+     * @param parts the Strings to hash, null is hashed as "null"
+     * @return the corresponding hash code String; empty if there is nothing to hash
+     */
+    public String hash(char separator, String... parts) {
+        int capacity = parts.length;
+        for (String part : parts) {
+            capacity += part == null ? 4 : 3 * part.length();
+        }
+        byte[] buffer = BUFFER.get();
+        if (buffer.length < capacity) {
+            buffer = new byte[Math.max(capacity, 2 * buffer.length)];
+            BUFFER.set(buffer);
+        }
+        int length = 0;
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                length = separator < 0x80 ? put(buffer, length, (byte) separator) : encodeUtf8(String.valueOf(separator), buffer, length);
+            }
+            length = encodeUtf8(String.valueOf(parts[i]), buffer, length);
+        }
+        if (length == 0) {
+            return "";
+        }
+        MessageDigest digest = this.digest.get();
+        digest.update(buffer, 0, length);
+        return getHex(digest.digest());
+    }
+
+    /**
+     * encodes like String.getBytes(UTF_8) : unpaired surrogates are replaced by '?'
+     */
+    private static int encodeUtf8(String s, byte[] buffer, int position) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                    buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else {
+                    buffer[position++] = '?';
+                }
+            } else {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return position;
+    }
+
+    private static int put(byte[] buffer, int position, byte b) {
+        buffer[position] = b;
+        return position + 1;
+    }
+
+    private MessageDigest newDigest() {
         try {
-            MessageDigest digest = MessageDigest.getInstance(algorithm);
-            digest.update(message.getBytes(charset));
-            return getHex(digest.digest());
+            return MessageDigest.getInstance(algorithm);
         } catch (NoSuchAlgorithmException e) {
             throw new IllegalArgumentException(e);
         }
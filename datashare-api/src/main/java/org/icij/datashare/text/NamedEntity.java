@@ -7,7 +7,6 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import me.xuender.unidecode.Unidecode;
 import org.icij.datashare.Entity;
 import org.icij.datashare.function.ThrowingFunction;
-import org.icij.datashare.function.ThrowingFunctions;
 import org.icij.datashare.text.indexing.IndexId;
 import org.icij.datashare.text.indexing.IndexParent;
 import org.icij.datashare.text.indexing.IndexRoot;
@@ -18,6 +17,7 @@ import org.icij.datashare.text.nlp.Tag;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import static java.lang.Math.min;
@@ -48,6 +48,14 @@ public final class NamedEntity implements Entity {
     private final String partsOfSpeech;
     private Boolean hidden;
 
+    private static final Pattern NEW_LINES = Pattern.compile("((\\r?\\n)+)");
+    private static final int NORMALIZED_CACHE_SIZE = 4096;
+    private static final ThreadLocal<Map<String, String>> NORMALIZED = ThreadLocal.withInitial(() ->
+            new LinkedHashMap<String, String>(NORMALIZED_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) { return size() > NORMALIZED_CACHE_SIZE;}
+            });
+
     public enum Category implements Serializable {
         PERSON       ("PERS"),
         ORGANIZATION ("ORG"),
@@ -112,24 +120,43 @@ public final class NamedEntity implements Entity {
     }
 
     public static List<NamedEntity> allFrom(String text, Annotations annotations) {
-        return annotations.get(NER).stream()
-                .map     ( tag -> from(text, tag, annotations) )
-                .filter  ( ne -> ne.category != UNKNOWN)
-                .collect ( Collectors.toList() );
+        return allFrom(text, annotations, 0);
+    }
+
+    /**
+     * @param text the text that has been annotated, it can be a chunk of the document content
+     * @param textOffset offset of the text in the document content, added to the entity offsets
+     */
+    public static List<NamedEntity> allFrom(String text, Annotations annotations, int textOffset) {
+        List<NamedEntity> namedEntities = new ArrayList<>(annotations.size(NER));
+        for (Annotations.Cursor ner = annotations.cursor(NER); ner.next(); ) {
+            NamedEntity namedEntity = from(text, ner.begin(), ner.end(), ner.value(), annotations, textOffset);
+            if (namedEntity.category != UNKNOWN) {
+                namedEntities.add(namedEntity);
+            }
+        }
+        return namedEntities;
     }
 
     public static NamedEntity from(String text, Tag tag, Annotations annotations) {
-        Category category = Category.parse(tag.getValue());
-        String mention = ThrowingFunctions.removeNewLines.apply(text.substring(tag.getBegin(), tag.getEnd()));
-        List<Tag> posTags = annotations.get(POS);
-        int posTagIndex = Collections.binarySearch(posTags, tag, Tag.comparator);
+        return from(text, tag, annotations, 0);
+    }
+
+    public static NamedEntity from(String text, Tag tag, Annotations annotations, int textOffset) {
+        return from(text, tag.getBegin(), tag.getEnd(), tag.getValue(), annotations, textOffset);
+    }
+
+    private static NamedEntity from(String text, int begin, int end, String value, Annotations annotations, int textOffset) {
+        Category category = Category.parse(value);
+        String mention = removeNewLines(text.substring(begin, end));
+        int posTagIndex = annotations.search(POS, begin);
         if (posTagIndex > 0) {
-            LOGGER.info(posTagIndex + ", " + posTags.get(posTagIndex));
+            LOGGER.info(posTagIndex + ", " + annotations.get(POS).get(posTagIndex));
         }
         return NamedEntity.create(
                 category,
                 mention,
-                tag.getBegin(),
+                textOffset + begin,
                 annotations.getDocumentId(),
                 annotations.getPipelineType(),
                 annotations.getLanguage()
@@ -151,12 +178,12 @@ public final class NamedEntity implements Entity {
             throw new IllegalArgumentException("Mention is undefined");
         }
         this.mentionNorm = normalize(mention);
-        this.id = HASHER.hash( String.join("|",
+        this.id = HASHER.hash('|',
                 documentId,
                 String.valueOf(offset),
                 extractor.toString(),
                 mentionNorm
-        ));
+        );
         this.category = Optional.ofNullable(category).orElse(UNKNOWN);
         this.mention = mention;
         this.documentId = documentId;
@@ -205,9 +232,60 @@ public final class NamedEntity implements Entity {
         return Objects.hash(id);
     }
 
+    /**
+     * transliterates to ASCII, trims, replaces whitespace sequences with one space and lowercases.
+     * ASCII mentions are normalized in one pass, the others are cached by thread.
+     */
     @JsonIgnore
     public static String normalize(String unicoded) {
-        return Unidecode.decode(unicoded).trim().replaceAll("(\\s+)", " ").toLowerCase();
+        if (isAscii(unicoded)) {
+            String language = Locale.getDefault().getLanguage();
+            boolean asciiLowerCase = !"tr".equals(language) && !"az".equals(language); // dotless i
+            String normalized = collapseWhitespaces(unicoded, asciiLowerCase);
+            return asciiLowerCase ? normalized : normalized.toLowerCase();
+        }
+        return NORMALIZED.get().computeIfAbsent(unicoded, m -> collapseWhitespaces(Unidecode.decode(m), false).toLowerCase());
+    }
+
+    private static boolean isAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+
+    /**
+     * same as s.trim().replaceAll("(\\s+)", " ")
+     */
+    private static String collapseWhitespaces(String s, boolean asciiLowerCase) {
+        int begin = 0;
+        int end = s.length();
+        while (begin < end && s.charAt(begin) <= ' ') begin++;
+        while (end > begin && s.charAt(end - 1) <= ' ') end--;
+        char[] chars = new char[end - begin];
+        int length = 0;
+        boolean changed = begin > 0 || end < s.length();
+        for (int i = begin; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r') {
+                if (chars[length - 1] != ' ') {
+                    chars[length++] = ' ';
+                    changed |= c != ' ';
+                } else {
+                    changed = true;
+                }
+            } else if (asciiLowerCase && c >= 'A' && c <= 'Z') {
+                chars[length++] = (char) (c + ('a' - 'A'));
+                changed = true;
+            } else {
+                chars[length++] = c;
+            }
+        }
+        return changed ? new String(chars, 0, length) : s;
+    }
+
+    private static String removeNewLines(String s) {
+        return s.indexOf('\n') < 0 ? s : NEW_LINES.matcher(s).replaceAll("");
     }
 
 }
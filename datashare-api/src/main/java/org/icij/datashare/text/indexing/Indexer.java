@@ -1,6 +1,7 @@
 package org.icij.datashare.text.indexing;
 
 import org.icij.datashare.Entity;
+import org.icij.datashare.function.Pair;
 import org.icij.datashare.text.Document;
 import org.icij.datashare.text.NamedEntity;
 import org.icij.datashare.text.nlp.Pipeline;
@@ -10,6 +11,7 @@ import org.slf4j.LoggerFactory;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
 
 
@@ -19,22 +21,46 @@ public interface Indexer extends Closeable {
     Searcher search(String indexName, Class<? extends Entity> entityClass);
 
     boolean createIndex(String indexName) throws IOException;
+    boolean createIndex(String indexName, Map<String, String> indexOptions) throws IOException;
     boolean deleteAll(String indexName) throws IOException;
 
     void close() throws IOException;
 
+    /**
+     * adds the named entities of parent and marks it as processed by nerType.
+     *
+     * The writes can be deferred to be coalesced with those of other documents (with bulkActions &gt; 1 for
+     * elasticsearch) : the entities are then only durable after the next flush or {@link #close()}.
+     * Parent is marked after its entities.
+     *
+     * @return false if the writes failed, true if they succeeded or are deferred
+     */
     boolean bulkAdd(String indexName, Pipeline.Type nerType, List<NamedEntity> namedEntities, Document parent) throws IOException;
+
+    /**
+     * same as {@link #bulkAdd(String, Pipeline.Type, List, Document)}, onWritten is called once all the writes of
+     * parent have succeeded. For deferred writes it is called later from another thread, and never if a write fails.
+     * A message must only be acknowledged from onWritten, not to lose the entities of a crash or a failed deferred write.
+     */
+    boolean bulkAdd(String indexName, Pipeline.Type nerType, List<NamedEntity> namedEntities, Document parent, Runnable onWritten) throws IOException;
     <T extends Entity> boolean bulkUpdate(String indexName, List<? extends Entity> entities) throws IOException;
     <T extends Entity> void add(String indexName, T obj) throws IOException;
     <T extends Entity> void update(String indexName, T obj) throws IOException;
 
     <T extends Entity> T get(String indexName, String id);
     <T extends Entity> T get(String indexName, String id, String root);
+    /**
+     * @return the entities in the order of idsAndRoutings, null for the entities that are not found or that failed
+     * @throws IOException if the whole request failed
+     */
+    <T extends Entity> List<T> get(String indexName, List<Pair<String, String>> idsAndRoutings, String... sourceFields) throws IOException;
 
     interface Searcher {
         Searcher ofStatus(Document.Status indexed);
         Stream<? extends Entity> execute() throws IOException;
         Stream<? extends Entity> scroll() throws IOException;
+        Stream<? extends Entity> scroll(int slices) throws IOException;
+        Stream<? extends Entity> searchAfter() throws IOException;
         Searcher withSource(String... fields);
         Searcher withSource(boolean source);
         Searcher without(Pipeline.Type... nlpPipelines);
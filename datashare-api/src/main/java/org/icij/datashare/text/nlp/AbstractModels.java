@@ -10,17 +10,38 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static java.lang.Boolean.parseBoolean;
 
+/**
+ * registry of the models of a pipeline stage, loaded lazily by language.
+ *
+ * the loaded models of all the registries share a memory budget (nlpModelsMemoryBudget, unlimited by default).
+ * When the approximate size of the loaded models exceeds it, the least recently used models are unloaded.
+ * Pipelines keeping references to the models must drop them on unload (see {@link #onUnload(Consumer)}),
+ * and copies of a model must be counted with {@link #addSize(Language, Object, long)}.
+ */
 public abstract class AbstractModels<T> {
     public final static String JVM_PROPERTY_NAME = "DS_SYNC_NLP_MODELS";
+    public static final String MEMORY_BUDGET_OPT = "nlpModelsMemoryBudget";
+    private static final Set<LoadedModel> loadedModels = ConcurrentHashMap.newKeySet();
+    private static final Set<AbstractModels<?>> registries = ConcurrentHashMap.newKeySet();
+    private static volatile long memoryBudget = 0;
     protected final Logger LOGGER = LoggerFactory.getLogger(getClass());
     private static final Path BASE_DIR = Paths.get(".").toAbsolutePath().normalize();
     protected static final Path BASE_CLASSPATH = Paths.get("models");
@@ -33,40 +54,122 @@ public abstract class AbstractModels<T> {
     public final NlpStage stage;
     protected final Map<Language, T> models;
     protected final Pipeline.Type type;
+    private final Map<Language, LoadedModel> usage = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loadTimeNanos = new AtomicLong();
+    private final List<Consumer<Language>> unloadListeners = new CopyOnWriteArrayList<>();
 
     protected AbstractModels(final Pipeline.Type type, final NlpStage stage) {
         this.stage = stage;
         this.type = type;
-        this.models = new HashMap<>();
+        this.models = new ConcurrentHashMap<>();
+        registries.add(this);
     }
 
     protected abstract T loadModelFile(Language language, ClassLoader loader) throws IOException;
     protected abstract String getVersion();
 
     public T get(Language language) throws InterruptedException {
-        if (!isLoaded(language)) {
-            load(language);
+        T model = models.get(language);
+        if (model != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            model = load(language);
+            evictIfNecessary(usage.get(language));
         }
-        return models.get(language);
+        LoadedModel loaded = usage.get(language);
+        if (loaded != null) {
+            loaded.lastAccess = System.nanoTime();
+        }
+        return model;
     }
 
-    private void load(Language language) throws InterruptedException {
+    private T load(Language language) throws InterruptedException {
         Semaphore l = modelLock.get(language);
         l.acquire();
         try {
-            if (isLoaded(language)) return;
+            T model = models.get(language);
+            if (model != null) return model;
             if (isSync()) {
                 downloadIfNecessary(language, getLoader());
             }
-            models.put(language, loadModelFile(language, getLoader()));
-            LOGGER.info("loaded {} model for {}", stage, language);
+            long start = System.nanoTime();
+            model = loadModelFile(language, getLoader());
+            loadTimeNanos.addAndGet(System.nanoTime() - start);
+            if (model == null) return null;
+            models.put(language, model);
+            LoadedModel loaded = new LoadedModel(this, language);
+            loaded.size = estimateSize(language, model);
+            usage.put(language, loaded);
+            loadedModels.add(loaded);
+            LOGGER.info("loaded {} model for {} ({} bytes)", stage, language, loaded.size);
+            return model;
         } catch (IOException e) {
             LOGGER.error("failed loading " + stage, e);
+            return null;
         } finally {
             l.release();
         }
     }
 
+    /**
+     * unloads the least recently used models (except the one that has just been loaded) while the loaded models exceed the memory budget.
+     * it is called without holding any lock, as unload waits for the lock of the evicted language.
+     */
+    private static void evictIfNecessary(LoadedModel justLoaded) throws InterruptedException {
+        long budget = memoryBudget;
+        if (budget <= 0) return;
+        List<LoadedModel> evicted = new ArrayList<>();
+        synchronized (loadedModels) {
+            long total = getLoadedSize();
+            List<LoadedModel> candidates = new ArrayList<>(loadedModels);
+            candidates.sort(Comparator.comparingLong(m -> m.lastAccess));
+            for (LoadedModel candidate : candidates) {
+                if (total <= budget) break;
+                if (candidate != justLoaded && candidate.size > 0) {
+                    evicted.add(candidate);
+                    total -= candidate.size;
+                }
+            }
+        }
+        for (LoadedModel model : evicted) {
+            model.models.LOGGER.info("memory budget of {} bytes exceeded, unloading {} model for {} ({} bytes)", budget, model.models.stage, model.language, model.size);
+            model.models.unload(model.language);
+        }
+        if (!evicted.isEmpty()) {
+            logMetrics();
+        }
+    }
+
+    /**
+     * adds the size of a copy of the model (for pipelines needing one model instance per thread) to the loaded size.
+     * Nothing is counted if model is not the loaded model of the language anymore.
+     */
+    protected void addSize(Language language, T model, long bytes) throws InterruptedException {
+        LoadedModel loaded = usage.get(language);
+        if (loaded == null || models.get(language) != model) return;
+        synchronized (loadedModels) {
+            loaded.size += bytes;
+        }
+        evictIfNecessary(loaded);
+    }
+
+    /**
+     * @return approximate heap size of the model. By default the size of the model files.
+     */
+    protected long estimateSize(Language language, T model) {
+        Path path = getModelsFilesystemPath(language);
+        if (!Files.isDirectory(path)) return 0;
+        try (Stream<Path> files = Files.walk(path)) {
+            return files.filter(Files::isRegularFile).mapToLong(f -> f.toFile().length()).sum();
+        } catch (IOException e) {
+            LOGGER.warn("cannot compute size of " + path, e);
+            return 0;
+        }
+    }
+
     public Path getModelsBasePath(Language language) {
         return BASE_CLASSPATH.
                 resolve(type.name().toLowerCase()).
@@ -122,10 +225,23 @@ public abstract class AbstractModels<T> {
         l.acquire();
         try {
             models.remove(language);
+            LoadedModel loaded = usage.remove(language);
+            if (loaded != null) {
+                loadedModels.remove(loaded);
+            }
         } finally {
             l.release();
         }
+        unloadListeners.forEach(listener -> listener.accept(language));
     }
+
+    /**
+     * @param listener called with the language of the unloaded models, to drop the references to them
+     */
+    public void onUnload(Consumer<Language> listener) {
+        unloadListeners.add(listener);
+    }
+
     public static void syncModels(final boolean sync) {
         LoggerFactory.getLogger(AbstractModels.class).info("synchronize models is set to {}", sync);
         System.setProperty(JVM_PROPERTY_NAME, String.valueOf(sync));
@@ -134,6 +250,45 @@ public abstract class AbstractModels<T> {
         return parseBoolean(System.getProperty(JVM_PROPERTY_NAME, "true"));
     }
 
+    /**
+     * @param bytes maximum approximate size of the loaded models of all the registries, 0 for no limit
+     */
+    public static void memoryBudget(final long bytes) {
+        LoggerFactory.getLogger(AbstractModels.class).info("models memory budget is set to {} bytes", bytes);
+        memoryBudget = bytes;
+    }
+    public static long getLoadedSize() { return loadedModels.stream().mapToLong(m -> m.size).sum();}
+
+    public long getHits() { return hits.get();}
+    public long getMisses() { return misses.get();}
+    public long getLoadTimeMillis() { return TimeUnit.NANOSECONDS.toMillis(loadTimeNanos.get());}
+
+    /**
+     * logs the hits, misses and load time of the registries, and the loaded size
+     */
+    public static void logMetrics() {
+        Logger logger = LoggerFactory.getLogger(AbstractModels.class);
+        for (AbstractModels<?> registry : registries) {
+            if (registry.getHits() + registry.getMisses() > 0) {
+                logger.info("{} {} models: {} hits, {} misses, {} ms loading", registry.type, registry.stage,
+                        registry.getHits(), registry.getMisses(), registry.getLoadTimeMillis());
+            }
+        }
+        logger.info("loaded models size: {} bytes (budget {})", getLoadedSize(), memoryBudget);
+    }
+
     public boolean isLoaded(Language language) { return models.containsKey(language);}
     protected RemoteFiles getRemoteFiles() { return RemoteFiles.getDefault();}
+
+    private static class LoadedModel {
+        private final AbstractModels<?> models;
+        private final Language language;
+        private volatile long size;
+        private volatile long lastAccess = System.nanoTime();
+
+        LoadedModel(AbstractModels<?> models, Language language) {
+            this.models = models;
+            this.language = language;
+        }
+    }
 }
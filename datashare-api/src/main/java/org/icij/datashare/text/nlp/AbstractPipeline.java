@@ -25,6 +25,7 @@ public abstract class AbstractPipeline implements Pipeline {
     protected final List<NamedEntity.Category> targetEntities;
     protected final boolean caching;
     protected List<NlpStage> stages;
+    private volatile Set<NlpStage> retainedStages = EnumSet.allOf(NlpStage.class);
 
     protected AbstractPipeline(Properties properties) {
         targetEntities = getProperty(Property.ENTITIES.getName(), properties,
@@ -98,6 +99,18 @@ public abstract class AbstractPipeline implements Pipeline {
      * @param docId  the input hash code*/
     public abstract Annotations process(String content, String docId, Language language) throws InterruptedException;
 
+    /**
+     * @param stages the stages kept in the annotations returned by process. The other stages are still
+     * computed if the target stages depend on them, but their tags are not stored.
+     */
+    public void retainStages(Set<NlpStage> stages) {
+        retainedStages = stages.isEmpty() ? EnumSet.noneOf(NlpStage.class) : EnumSet.copyOf(stages);
+    }
+
+    protected Annotations newAnnotations(String docId, Language language) {
+        return new Annotations(docId, getType(), language, retainedStages);
+    }
+
     /**
      * Post-processing operations
      */
@@ -5,22 +5,37 @@ import org.icij.datashare.text.Language;
 import java.util.*;
 
 
+/**
+ * tags of a text stored by columns : for each stage, growable int arrays of begins, ends and value ids.
+ * Values are interned by document, the same POS or NER category is stored once.
+ *
+ * {@link #cursor(NlpStage)} reads the tags without creating objects. {@link #get(NlpStage)} is a view
+ * creating the {@link Tag}s on demand.
+ *
+ * only the retained stages are stored, the tags added for the other stages are ignored.
+ */
 public class Annotations {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final Columns NOT_RETAINED = new Columns();
     private final String documentId;
     private final Pipeline.Type pipelineType;
     private final Language language;
-    private final Map<NlpStage, List<Tag>> tags;
+    private final Columns[] columns = new Columns[NlpStage.values().length];
+    private final List<String> values = new ArrayList<>();
+    private final Map<String, Integer> valueIds = new HashMap<>();
 
     public Annotations(String documentId, Pipeline.Type pipelineType, Language language) {
+        this(documentId, pipelineType, language, EnumSet.allOf(NlpStage.class));
+    }
+
+    public Annotations(String documentId, Pipeline.Type pipelineType, Language language, Set<NlpStage> retainedStages) {
         this.documentId = documentId;
         this.pipelineType = pipelineType;
         this.language = language;
-        tags = new HashMap<NlpStage, List<Tag>>() {{
-            Arrays.stream( NlpStage.values() )
-                    .forEach( stage ->
-                            put(stage, new ArrayList<>())
-                    );
-        }};
+        for (NlpStage stage : NlpStage.values()) {
+            columns[stage.ordinal()] = retainedStages.contains(stage) ? new Columns() : NOT_RETAINED;
+        }
+        valueId("");
     }
 
     public String getDocumentId() {
@@ -31,14 +46,123 @@ public class Annotations {
         return pipelineType;
     }
     public List<Tag> get(NlpStage stage) {
-        return tags.get(stage);
+        return new TagList(stage);
+    }
+
+    public boolean retains(NlpStage stage) {
+        return columns[stage.ordinal()] != NOT_RETAINED;
     }
 
     public void add(NlpStage stage, int begin, int end) {
-        tags.get(stage).add(new Tag(stage, begin, end));
+        if (retains(stage)) {
+            columns[stage.ordinal()].add(begin, end, 0);
+        }
     }
 
     public void add(NlpStage stage, int begin, int end, String value) {
-        tags.get(stage).add(new Tag(stage, begin, end, value));
+        if (retains(stage)) {
+            columns[stage.ordinal()].add(begin, end, valueId(value));
+        }
+    }
+
+    public int size(NlpStage stage) {
+        return columns[stage.ordinal()].size;
+    }
+
+    public Cursor cursor(NlpStage stage) {
+        return new Cursor(columns[stage.ordinal()]);
+    }
+
+    /**
+     * @return index of a tag of the stage beginning at begin, or (-(insertion point) - 1) like {@link Arrays#binarySearch(int[], int)}.
+     * The tags must have been added by ascending begin.
+     */
+    public int search(NlpStage stage, int begin) {
+        Columns stageColumns = columns[stage.ordinal()];
+        return Arrays.binarySearch(stageColumns.begins, 0, stageColumns.size, begin);
+    }
+
+    private int valueId(String value) {
+        Integer id = valueIds.get(value);
+        if (id == null) {
+            id = values.size();
+            values.add(value);
+            valueIds.put(value, id);
+        }
+        return id;
+    }
+
+    /**
+     * iterates over the tags of a stage : <pre>for (Cursor c = annotations.cursor(NER); c.next(); ) c.begin()...</pre>
+     */
+    public class Cursor {
+        private final Columns stageColumns;
+        private int index = -1;
+
+        private Cursor(Columns stageColumns) { this.stageColumns = stageColumns;}
+
+        public boolean next() { return ++index < stageColumns.size;}
+        public int index() { return index;}
+        public int begin() { return stageColumns.begins[index];}
+        public int end() { return stageColumns.ends[index];}
+        public String value() { return values.get(stageColumns.value(index));}
+    }
+
+    /**
+     * the values column is only allocated when a tag has a value (i.e. not for tokens and sentences)
+     */
+    private static class Columns {
+        private int[] begins = new int[INITIAL_CAPACITY];
+        private int[] ends = new int[INITIAL_CAPACITY];
+        private int[] values = null;
+        private int size = 0;
+
+        void add(int begin, int end, int value) {
+            if (size == begins.length) {
+                begins = Arrays.copyOf(begins, 2 * size);
+                ends = Arrays.copyOf(ends, 2 * size);
+                if (values != null) {
+                    values = Arrays.copyOf(values, 2 * size);
+                }
+            }
+            if (value != 0 && values == null) {
+                values = new int[begins.length];
+            }
+            begins[size] = begin;
+            ends[size] = end;
+            if (values != null) {
+                values[size] = value;
+            }
+            size++;
+        }
+
+        int value(int index) { return values == null ? 0 : values[index];}
+    }
+
+    private class TagList extends AbstractList<Tag> implements RandomAccess {
+        private final NlpStage stage;
+        private final Columns stageColumns;
+
+        TagList(NlpStage stage) {
+            this.stage = stage;
+            this.stageColumns = columns[stage.ordinal()];
+        }
+
+        @Override
+        public Tag get(int index) {
+            if (index < 0 || index >= stageColumns.size) {
+                throw new IndexOutOfBoundsException("index " + index + " size " + stageColumns.size);
+            }
+            return new Tag(stage, stageColumns.begins[index], stageColumns.ends[index], values.get(stageColumns.value(index)));
+        }
+
+        @Override
+        public boolean add(Tag tag) {
+            Annotations.this.add(stage, tag.getBegin(), tag.getEnd(), tag.getValue());
+            return true;
+        }
+
+        @Override
+        public int size() { return stageColumns.size;}
     }
 }
@@ -0,0 +1,247 @@
+package org.icij.datashare.text.nlp;
+
+import org.icij.datashare.com.Message;
+import org.icij.datashare.function.Pair;
+import org.icij.datashare.text.Document;
+import org.icij.datashare.text.Language;
+import org.icij.datashare.text.indexing.Indexer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+import static org.icij.datashare.com.Message.Field.*;
+import static org.icij.datashare.com.Message.Type.EXTRACT_NLP;
+import static org.icij.datashare.com.Message.Type.SHUTDOWN;
+
+/**
+ * dispatches the NLP messages of the input queue in one queue per document language, so that consumers
+ * process the documents of a language together instead of switching models for each document.
+ * The languages are read from the index by batches.
+ *
+ * a consumer keeps its language while it has documents, unless the documents of another language wait
+ * for more than MAX_WAIT_MILLIS. The pipeline models of a language are terminated when the last consumer
+ * working on it switches to another language.
+ */
+class LanguageScheduler implements Runnable {
+    static final String[] LANGUAGE_SOURCE_FIELDS = {"language"};
+    static final long MAX_WAIT_MILLIS = 60_000;
+    static final long RETRY_MIN_MILLIS = 100;
+    private static final long RETRY_MAX_MILLIS = 30_000;
+    private static final int DISPATCH_SIZE = 100;
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final AbstractPipeline pipeline;
+    private final Indexer indexer;
+    private final BlockingQueue<Message> input;
+    private final int capacity;
+    private final Map<Language, Deque<Message>> queues = new EnumMap<>(Language.class);
+    private final Map<Language, Integer> consumers = new EnumMap<>(Language.class);
+    private int scheduled = 0;
+    private int processing = 0;
+    private boolean shutdown = false;
+
+    static class Batch {
+        final Language language;
+        final List<Message> messages;
+
+        Batch(Language language, List<Message> messages) {
+            this.language = language;
+            this.messages = messages;
+        }
+    }
+
+    /**
+     * @param capacity maximum number of messages waiting in the language queues
+     */
+    LanguageScheduler(AbstractPipeline pipeline, Indexer indexer, BlockingQueue<Message> input, int capacity) {
+        this.pipeline = pipeline;
+        this.indexer = indexer;
+        this.input = input;
+        this.capacity = capacity;
+    }
+
+    @Override
+    public void run() {
+        boolean shutdownReceived = false;
+        while (!shutdownReceived) {
+            try {
+                Message message = input.poll(1, SECONDS);
+                if (message == null) {
+                    continue;
+                }
+                List<Message> messages = new ArrayList<>(DISPATCH_SIZE);
+                messages.add(message);
+                input.drainTo(messages, DISPATCH_SIZE - 1);
+                synchronized (input) {
+                    if (input.isEmpty()) {
+                        input.notify();
+                    }
+                }
+                shutdownReceived = messages.stream().anyMatch(m -> m.type == SHUTDOWN);
+                dispatch(messages.stream().filter(m -> m.type == EXTRACT_NLP).collect(toList()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                logger.warn("error in scheduler main loop", e);
+            }
+        }
+        synchronized (this) {
+            shutdown = true;
+            notifyAll();
+        }
+        logger.info("exiting scheduler loop");
+    }
+
+    /**
+     * @return the next batch of messages of the same language, preferably the current language of the consumer.
+     * Blocks until there are messages to process, returns null when shutdown is asked and all messages are processed.
+     */
+    Batch take(Language current, int max) throws InterruptedException {
+        Batch batch;
+        boolean lastConsumer = false;
+        synchronized (this) {
+            while (scheduled == 0) {
+                if (shutdown) {
+                    return null;
+                }
+                wait();
+            }
+            Language language = choose(current);
+            if (language != current) {
+                lastConsumer = release(current);
+                consumers.merge(language, 1, Integer::sum);
+            }
+            Deque<Message> queue = queues.get(language);
+            List<Message> messages = new ArrayList<>(Math.min(max, queue.size()));
+            while (messages.size() < max && !queue.isEmpty()) {
+                messages.add(queue.poll());
+            }
+            scheduled -= messages.size();
+            processing++;
+            notifyAll();
+            batch = new Batch(language, messages);
+        }
+        if (lastConsumer) {
+            pipeline.terminate(current);
+        }
+        return batch;
+    }
+
+    /**
+     * called by the consumer when it has processed a batch
+     */
+    synchronized void done(Batch batch) {
+        processing--;
+        notifyAll();
+    }
+
+    /**
+     * waits for the shutdown message and for the messages received before it to be processed
+     * @return false if the timeout elapsed before
+     */
+    synchronized boolean awaitDone(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!shutdown || scheduled > 0 || processing > 0) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    /**
+     * the consumer stops working on language. The models are terminated if it was the last one.
+     *
+     * terminate can be slow (models unloading), it is called without holding the scheduler lock not to block
+     * the other consumers. A consumer taking the language meanwhile loads the models again.
+     */
+    void leave(Language language) throws InterruptedException {
+        if (release(language)) {
+            pipeline.terminate(language);
+        }
+    }
+
+    /**
+     * @return true if it was the last consumer of language
+     */
+    private synchronized boolean release(Language language) {
+        if (language != null && consumers.merge(language, -1, Integer::sum) == 0) {
+            consumers.remove(language);
+            return true;
+        }
+        return false;
+    }
+
+    private void dispatch(List<Message> messages) throws InterruptedException {
+        Map<Message, Language> languages = languages(messages);
+        synchronized (this) {
+            while (scheduled >= capacity) {
+                wait();
+            }
+            messages.forEach(m -> queues.computeIfAbsent(languages.get(m), l -> new ArrayDeque<>()).offer(m));
+            scheduled += messages.size();
+            notifyAll();
+        }
+    }
+
+    private Map<Message, Language> languages(List<Message> messages) throws InterruptedException {
+        Map<Message, Language> languages = new IdentityHashMap<>(messages.size());
+        Map<String, List<Message>> messagesByProject = messages.stream().collect(groupingBy(m -> m.content.get(INDEX_NAME)));
+        for (Map.Entry<String, List<Message>> projectMessages : messagesByProject.entrySet()) {
+            List<Pair<String, String>> idsAndRoutings = projectMessages.getValue().stream()
+                    .map(m -> new Pair<>(m.content.get(DOC_ID), m.content.get(R_ID))).collect(toList());
+            List<Document> docs = getLanguages(projectMessages.getKey(), idsAndRoutings);
+            for (int i = 0; i < idsAndRoutings.size(); i++) {
+                Document doc = docs != null && i < docs.size() ? docs.get(i) : null;
+                languages.put(projectMessages.getValue().get(i),
+                        doc == null || doc.getLanguage() == null ? Language.UNKNOWN : doc.getLanguage());
+            }
+        }
+        return languages;
+    }
+
+    /**
+     * retries until the index answers, a failed request must not be taken for missing documents
+     */
+    private List<Document> getLanguages(String projectName, List<Pair<String, String>> idsAndRoutings) throws InterruptedException {
+        for (long backoff = RETRY_MIN_MILLIS; ; backoff = Math.min(2 * backoff, RETRY_MAX_MILLIS)) {
+            try {
+                return indexer.get(projectName, idsAndRoutings, LANGUAGE_SOURCE_FIELDS);
+            } catch (IOException e) {
+                logger.warn("cannot read the language of " + idsAndRoutings.size() + " document(s) in " + projectName + ", retrying in " + backoff + "ms", e);
+                Thread.sleep(backoff);
+            }
+        }
+    }
+
+    private Language choose(Language current) {
+        Language oldest = null;
+        long oldestDate = Long.MAX_VALUE;
+        for (Map.Entry<Language, Deque<Message>> queue : queues.entrySet()) {
+            if (!queue.getValue().isEmpty() && queue.getValue().peek().date.getTime() < oldestDate) {
+                oldest = queue.getKey();
+                oldestDate = queue.getValue().peek().date.getTime();
+            }
+        }
+        Deque<Message> currentQueue = current == null ? null : queues.get(current);
+        if (currentQueue != null && !currentQueue.isEmpty() &&
+                currentQueue.peek().date.getTime() - oldestDate < MAX_WAIT_MILLIS) {
+            return current;
+        }
+        return oldest;
+    }
+}
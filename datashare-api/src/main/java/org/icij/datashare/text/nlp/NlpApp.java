@@ -8,7 +8,10 @@ import com.google.inject.assistedinject.FactoryModuleBuilder;
 import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.user.User;
 import org.icij.datashare.com.Message;
+import org.icij.datashare.com.Publisher;
 import org.icij.datashare.com.ShutdownMessage;
+import org.icij.datashare.com.memory.MemoryPublisher;
+import org.icij.datashare.com.redis.RedisPublisher;
 import org.icij.datashare.monitoring.Monitorable;
 import org.icij.datashare.text.indexing.Indexer;
 import org.icij.datashare.user.UserTask;
@@ -32,47 +35,68 @@ public class NlpApp implements Runnable, Monitorable, UserTask {
     private static final long DEFAULT_TIMEOUT_MILLIS = 30 * 60 * 1000;
     private final Logger logger = LoggerFactory.getLogger(getClass());
     public static final String NLP_PARALLELISM_OPT = "nlpParallelism";
+    public static final String NLP_BATCH_SIZE_OPT = "nlpBatchSize";
+    public static final String NLP_CHUNK_SIZE_OPT = "nlpChunkSize";
     private final AbstractPipeline pipeline;
     private final Indexer indexer;
     private final long shutdownTimeoutMillis;
     private final BlockingQueue<Message> queue;
     private final int parallelism;
+    private final int batchSize;
+    private final int chunkSize;
     private final NlpForwarder forwarder;
+    private final LanguageScheduler scheduler;
     private final User user;
     private ExecutorService threadPool = null;
 
     @AssistedInject
-    public NlpApp(final Indexer indexer, final PropertiesProvider propertiesProvider, @Assisted final AbstractPipeline pipeline, @Assisted final User user) {
-        this(indexer, pipeline, propertiesProvider.getProperties(), () -> {}, 0, user);
+    public NlpApp(final Indexer indexer, final Publisher publisher, final PropertiesProvider propertiesProvider,
+                  @Assisted final AbstractPipeline pipeline, @Assisted final User user) {
+        this(indexer, pipeline, propertiesProvider.getProperties(), () -> {}, 0, user, publisher);
     }
 
     @AssistedInject
-    public NlpApp(final Indexer indexer, @Assisted final AbstractPipeline pipeline, @Assisted final Properties properties,
+    public NlpApp(final Indexer indexer, final Publisher publisher, @Assisted final AbstractPipeline pipeline, @Assisted final Properties properties,
                   @Assisted final User user, @Assisted final Runnable subscribeCb) {
-        this(indexer, pipeline, properties, subscribeCb, 0, user);
+        this(indexer, pipeline, properties, subscribeCb, 0, user, publisher);
     }
 
     NlpApp(final Indexer indexer, final AbstractPipeline pipeline, final Properties properties,
            Runnable subscribedCb, long shutdownTimeoutMillis, User user) {
+        this(indexer, pipeline, properties, subscribedCb, shutdownTimeoutMillis, user, null);
+    }
+
+    NlpApp(final Indexer indexer, final AbstractPipeline pipeline, final Properties properties,
+           Runnable subscribedCb, long shutdownTimeoutMillis, User user, Publisher publisher) {
         this.pipeline = pipeline;
         this.indexer = indexer;
         this.shutdownTimeoutMillis = shutdownTimeoutMillis == 0 ? DEFAULT_TIMEOUT_MILLIS : shutdownTimeoutMillis;
-        this.queue = new LinkedBlockingQueue<>();
         this.user = user;
 
         parallelism = parseInt(ofNullable(properties.getProperty(NLP_PARALLELISM_OPT)).orElse("1"));
-        forwarder = new NlpForwarder(properties, queue, subscribedCb);
+        int queueCapacity = ofNullable(properties.getProperty(NlpForwarder.QUEUE_CAPACITY_OPT)).map(Integer::parseInt).orElse(NlpForwarder.DEFAULT_QUEUE_CAPACITY);
+        this.queue = new LinkedBlockingQueue<>(Math.max(queueCapacity, parallelism)); // room for the shutdown messages
+        this.scheduler = new LanguageScheduler(pipeline, indexer, queue, Math.max(queueCapacity, 1));
+        batchSize = parseInt(ofNullable(properties.getProperty(NLP_BATCH_SIZE_OPT)).orElse("1"));
+        chunkSize = ofNullable(properties.getProperty(NLP_CHUNK_SIZE_OPT)).map(Integer::parseInt).orElse(NlpConsumer.DEFAULT_CHUNK_SIZE);
+        ofNullable(properties.getProperty(AbstractModels.MEMORY_BUDGET_OPT)).map(Long::parseLong)
+                .ifPresent(megabytes -> AbstractModels.memoryBudget(megabytes * 1024 * 1024));
+        forwarder = new NlpForwarder(properties, queue, subscribedCb, String.valueOf(pipeline.getType()),
+                publisher instanceof MemoryPublisher ? (MemoryPublisher) publisher : null);
     }
 
     public void run() {
         try {
             logger.info("running NlpApp for {} pipeline with {} thread(s)", pipeline.getType(), parallelism);
-            this.threadPool = Executors.newFixedThreadPool(parallelism,
+            this.threadPool = Executors.newFixedThreadPool(parallelism + 1,
                     new ThreadFactoryBuilder().setNameFormat(pipeline.getType().name() + "-%d").build());
-            generate(() -> new NlpConsumer(pipeline, indexer, queue)).limit(parallelism).forEach(l -> threadPool.execute(l));
+            threadPool.execute(scheduler);
+            generate(() -> new NlpConsumer(pipeline, indexer, queue, batchSize, chunkSize)
+                    .withAcknowledgement(forwarder::acknowledge).withScheduler(scheduler)).limit(parallelism).forEach(l -> threadPool.execute(l));
             forwarder.run();
             logger.info("forwarder exited waiting for consumer(s) to finish");
             shutdown();
+            forwarder.close();
         } catch (Throwable throwable) {
             logger.error("error running NlpApp", throwable);
         }
@@ -83,6 +107,9 @@ public class NlpApp implements Runnable, Monitorable, UserTask {
         waitForQueueToBeEmpty();
         threadPool.shutdown();
         generate(() -> queue.offer(new ShutdownMessage())).limit(parallelism).collect(toList()); // trying to clean exit
+        if (! scheduler.awaitDone(shutdownTimeoutMillis)) {
+            logger.info("scheduled messages have not been processed yet");
+        }
         if (! threadPool.awaitTermination(shutdownTimeoutMillis, MILLISECONDS)) {
             logger.info("consumers have not finished yet, interrupting...");
             threadPool.shutdownNow();
@@ -92,6 +119,7 @@ public class NlpApp implements Runnable, Monitorable, UserTask {
                 logger.info("consumers interrupted");
             }
         }
+        AbstractModels.logMetrics();
     }
 
     private void waitForQueueToBeEmpty() throws InterruptedException {
@@ -131,6 +159,7 @@ public class NlpApp implements Runnable, Monitorable, UserTask {
             bind(PropertiesProvider.class).toInstance(new PropertiesProvider());
             bind(AbstractPipeline.class).to(pipelineClass).asEagerSingleton();
             bind(Indexer.class).to(indexerClass).asEagerSingleton();
+            bind(Publisher.class).to(RedisPublisher.class);
             install(new FactoryModuleBuilder().build(NlpAppFactory.class));
         }
         interface NlpAppFactory {
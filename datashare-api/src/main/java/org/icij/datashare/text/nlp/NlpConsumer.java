@@ -2,49 +2,109 @@ package org.icij.datashare.text.nlp;
 
 import com.google.inject.Inject;
 import org.icij.datashare.com.Message;
+import org.icij.datashare.function.Pair;
 import org.icij.datashare.text.Document;
+import org.icij.datashare.text.Language;
 import org.icij.datashare.text.NamedEntity;
 import org.icij.datashare.text.indexing.Indexer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
+import static java.util.Collections.unmodifiableSet;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
 import static org.icij.datashare.com.Message.Field.*;
 
 public class NlpConsumer implements DatashareListener {
+    static final String[] NLP_SOURCE_FIELDS = {"content", "language", "rootDocument"};
+    public static final int DEFAULT_CHUNK_SIZE = 1_000_000;
+    public static final Set<NlpStage> CONSUMED_STAGES = unmodifiableSet(EnumSet.of(NlpStage.NER)); // the other stages are not stored
     private final Indexer indexer;
     private final BlockingQueue<Message> messageQueue;
     private final AbstractPipeline nlpPipeline;
+    private final int batchSize;
+    private final int chunkSize;
+    private Consumer<Message> acknowledgement = message -> {};
+    private LanguageScheduler scheduler = null;
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     @Inject
     public NlpConsumer(AbstractPipeline pipeline, Indexer indexer, BlockingQueue<Message> messageQueue) {
+        this(pipeline, indexer, messageQueue, 1);
+    }
+
+    public NlpConsumer(AbstractPipeline pipeline, Indexer indexer, BlockingQueue<Message> messageQueue, int batchSize) {
+        this(pipeline, indexer, messageQueue, batchSize, DEFAULT_CHUNK_SIZE);
+    }
+
+    public NlpConsumer(AbstractPipeline pipeline, Indexer indexer, BlockingQueue<Message> messageQueue, int batchSize, int chunkSize) {
         this.indexer = indexer;
         this.messageQueue = messageQueue;
         this.nlpPipeline = pipeline;
+        this.batchSize = batchSize;
+        this.chunkSize = chunkSize;
+        pipeline.retainStages(CONSUMED_STAGES);
+    }
+
+    /**
+     * @param acknowledgement called with each message once its named entities have been written, possibly
+     *                        from another thread when the indexer defers the writes. Messages of documents
+     *                        whose entities could not be extracted or written are not acknowledged.
+     */
+    public NlpConsumer withAcknowledgement(Consumer<Message> acknowledgement) {
+        this.acknowledgement = acknowledgement;
+        return this;
+    }
+
+    /**
+     * messages are taken by language from the scheduler, that initializes and terminates the languages models
+     */
+    NlpConsumer withScheduler(LanguageScheduler scheduler) {
+        this.scheduler = scheduler;
+        return this;
     }
 
     @Override
     public void run() {
+        if (scheduler != null) {
+            runScheduled();
+            return;
+        }
         boolean exitAsked = false;
         while (! exitAsked) {
             try {
                 Message message = messageQueue.poll(30, TimeUnit.SECONDS);
                 if (message != null) {
-                    switch (message.type) {
-                        case EXTRACT_NLP:
-                            findNamedEntities(message.content.get(INDEX_NAME), message.content.get(DOC_ID), message.content.get(R_ID));
-                            break;
-                        case SHUTDOWN:
-                            exitAsked = true;
-                            break;
-                        default:
-                            logger.info("ignore {}", message);
+                    List<Message> messages = new ArrayList<>(batchSize);
+                    messages.add(message);
+                    messageQueue.drainTo(messages, batchSize - 1);
+                    List<Message> toExtract = new ArrayList<>(messages.size());
+                    for (Message drained : messages) {
+                        switch (drained.type) {
+                            case EXTRACT_NLP:
+                                toExtract.add(drained);
+                                break;
+                            case SHUTDOWN:
+                                if (exitAsked) {
+                                    messageQueue.offer(drained); // there is one shutdown message per consumer
+                                }
+                                exitAsked = true;
+                                break;
+                            default:
+                                logger.info("ignore {}", drained);
+                        }
                     }
+                    findNamedEntities(toExtract);
                     synchronized (messageQueue) {
                         if (messageQueue.isEmpty()) {
                             messageQueue.notify();
@@ -58,23 +118,118 @@ public class NlpConsumer implements DatashareListener {
         logger.info("exiting main loop");
     }
 
+    private void runScheduled() {
+        Language language = null;
+        boolean supported = false;
+        try {
+            for (LanguageScheduler.Batch batch; (batch = scheduler.take(language, batchSize)) != null; ) {
+                try {
+                    if (batch.language != language) {
+                        language = batch.language;
+                        supported = nlpPipeline.initialize(language);
+                    }
+                    if (supported) {
+                        findNamedEntities(batch.messages);
+                    } else {
+                        batch.messages.forEach(acknowledgement);
+                    }
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Throwable e) {
+                    logger.warn("error in consumer main loop", e);
+                } finally {
+                    scheduler.done(batch);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                scheduler.leave(language);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        logger.info("exiting main loop");
+    }
+
+    void findNamedEntities(final List<Message> messages) throws InterruptedException, IOException {
+        if (messages.size() == 1) {
+            Message message = messages.get(0);
+            String id = message.content.get(DOC_ID);
+            extractNamedEntities(message.content.get(INDEX_NAME), id, indexer.get(message.content.get(INDEX_NAME), id, message.content.get(R_ID)), message);
+            return;
+        }
+        Map<String, List<Message>> messagesByProject = messages.stream().collect(groupingBy(m -> m.content.get(INDEX_NAME)));
+        for (Map.Entry<String, List<Message>> projectMessages : messagesByProject.entrySet()) {
+            List<Pair<String, String>> idsAndRoutings = projectMessages.getValue().stream()
+                    .map(m -> new Pair<>(m.content.get(DOC_ID), m.content.get(R_ID))).collect(toList());
+            List<Document> docs = indexer.get(projectMessages.getKey(), idsAndRoutings, NLP_SOURCE_FIELDS);
+            for (int i = 0; i < docs.size(); i++) {
+                extractNamedEntities(projectMessages.getKey(), idsAndRoutings.get(i)._1(), docs.get(i), projectMessages.getValue().get(i));
+            }
+        }
+    }
+
     void findNamedEntities(final String projectName, final String id, final String routing) throws InterruptedException {
+        extractNamedEntities(projectName, id, indexer.get(projectName, id, routing), null);
+    }
+
+    /**
+     * @param message acknowledged when the entities are written, or right away if there is nothing to extract
+     */
+    private void extractNamedEntities(final String projectName, final String id, final Document doc, final Message message) throws InterruptedException {
+        Runnable acknowledge = message == null ? () -> {} : () -> acknowledgement.accept(message);
         try {
-            Document doc = indexer.get(projectName, id, routing);
             if (doc != null) {
                 logger.info("extracting {} entities for document {}", nlpPipeline.getType(), doc.getId());
-                if (nlpPipeline.initialize(doc.getLanguage())) {
-                    Annotations annotations = nlpPipeline.process(doc.getContent(), doc.getId(), doc.getLanguage());
-                    List<NamedEntity> namedEntities = NamedEntity.allFrom(doc.getContent(), annotations);
-                    indexer.bulkAdd(projectName, nlpPipeline.getType(), namedEntities, doc);
-                    logger.info("added {} named entities to document {}", namedEntities.size(), doc.getId());
-                    nlpPipeline.terminate(doc.getLanguage());
+                if (scheduler != null || nlpPipeline.initialize(doc.getLanguage())) {
+                    String content = doc.getContent();
+                    List<NamedEntity> namedEntities = new ArrayList<>();
+                    int begin = 0;
+                    do { // large contents are processed by chunks to bound the pipeline memory
+                        int end = chunkEnd(content, begin, chunkSize);
+                        String chunk = content.substring(begin, end);
+                        Annotations annotations = nlpPipeline.process(chunk, doc.getId(), doc.getLanguage());
+                        namedEntities.addAll(NamedEntity.allFrom(chunk, annotations, begin));
+                        begin = end;
+                    } while (begin < content.length());
+                    if (indexer.bulkAdd(projectName, nlpPipeline.getType(), namedEntities, doc, acknowledge)) {
+                        logger.info("added {} named entities to document {}", namedEntities.size(), doc.getId());
+                    } else {
+                        logger.error("cannot add {} named entities to document {}", namedEntities.size(), doc.getId());
+                    }
+                    if (scheduler == null) {
+                        nlpPipeline.terminate(doc.getLanguage());
+                    }
+                } else {
+                    acknowledge.run();
                 }
             } else {
                 logger.warn("no document found in index with id " + id);
+                acknowledge.run();
             }
         } catch (IOException e) {
             logger.error("cannot extract entities of doc " + id, e);
         }
     }
+
+    /**
+     * end of the chunk starting at begin. The chunk is cut after a new line or a whitespace
+     * found in its last tenth so that entities are not split, or at chunkSize otherwise.
+     */
+    static int chunkEnd(final String content, final int begin, final int chunkSize) {
+        if (chunkSize <= 0 || content.length() - begin <= chunkSize) {
+            return content.length();
+        }
+        int end = begin + chunkSize;
+        int lowest = end - chunkSize / 10;
+        for (int i = end; i > lowest; i--) {
+            if (content.charAt(i - 1) == '\n') return i;
+        }
+        for (int i = end; i > lowest; i--) {
+            if (Character.isWhitespace(content.charAt(i - 1))) return i;
+        }
+        return Character.isHighSurrogate(content.charAt(end - 1)) && end - 1 > begin ? end - 1 : end;
+    }
 }
@@ -2,39 +2,134 @@ package org.icij.datashare.text.nlp;
 
 import org.icij.datashare.com.Channel;
 import org.icij.datashare.com.Message;
+import org.icij.datashare.com.MessageCodec;
+import org.icij.datashare.com.memory.MemoryPublisher;
+import org.icij.datashare.com.memory.MemorySubscriber;
+import org.icij.datashare.com.redis.RedisStreamPublisher;
+import org.icij.datashare.com.redis.RedisStreamSubscriber;
 import org.icij.datashare.com.redis.RedisSubscriber;
 import org.icij.datashare.monitoring.Monitorable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.util.Properties;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicLong;
 
+import static java.lang.Boolean.parseBoolean;
 import static java.lang.Long.parseLong;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.icij.datashare.com.Message.Type.EXTRACT_NLP;
 import static org.icij.datashare.com.Message.Type.INIT_MONITORING;
 
+/**
+ * forwards the NLP messages of the bus to the consumers queue.
+ *
+ * the queue is bounded (nlpQueueCapacity). When it is full, with redis streams the forwarder stops reading
+ * so messages are left in the stream, with pub/sub messages are spilled in a redis list and moved back
+ * to the queue when it is half empty. With the in memory bus the publishers wait when the subscriber mailbox is full.
+ */
 public class NlpForwarder implements DatashareListener,Monitorable {
+    public static final String CONSUMER_NAME_OPT = "nlpConsumerName";
+    public static final String CLAIM_TIMEOUT_OPT = "nlpClaimTimeout";
+    public static final String QUEUE_CAPACITY_OPT = "nlpQueueCapacity";
+    static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+    private static final int READ_COUNT = 100;
+    private static final long REFILL_INTERVAL_MILLIS = 100;
+    private static final long MAX_REFILL_BACKOFF_MILLIS = 10_000;
     private final BlockingQueue<Message> messageQueue;
     private final Runnable subscribedCallback;
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final String busAddress;
     private final AtomicLong totalToProcess = new AtomicLong(0);
     private final AtomicLong processed = new AtomicLong(0);
+    private final AtomicLong spilled = new AtomicLong(0);
+    private final String group;
+    private final Properties properties;
+    private final boolean streams;
+    private final String spillKey;
+    private final MessageCodec codec;
+    private final MemoryPublisher memoryBus;
+    private volatile RedisStreamSubscriber streamSubscriber;
+    private volatile boolean subscribed = false;
+    private JedisPool pool;
 
     NlpForwarder(Properties properties, BlockingQueue<Message> messageQueue, Runnable subscribedCallback) {
+        this(properties, messageQueue, subscribedCallback, "nlp");
+    }
+
+    NlpForwarder(Properties properties, BlockingQueue<Message> messageQueue, Runnable subscribedCallback, String group) {
+        this(properties, messageQueue, subscribedCallback, group, null);
+    }
+
+    /**
+     * @param memoryBus if not null messages are read from this in process bus instead of redis
+     */
+    NlpForwarder(Properties properties, BlockingQueue<Message> messageQueue, Runnable subscribedCallback, String group, MemoryPublisher memoryBus) {
         this.messageQueue = messageQueue;
+        this.memoryBus = memoryBus;
         this.subscribedCallback = subscribedCallback;
+        this.group = group;
+        this.properties = properties;
         String messageBusAddress = properties.getProperty("messageBusAddress");
         busAddress = messageBusAddress == null ? "localhost": messageBusAddress;
+        streams = parseBoolean(properties.getProperty(RedisStreamPublisher.STREAMS_OPT, "false"));
+        spillKey = "nlp:spill_" + group;
+        codec = MessageCodec.create(properties.getProperty(MessageCodec.CODEC_OPT, "json"));
     }
 
     @Override
     public void run() {
-        logger.info("waiting for messages on host [{}]", busAddress);
-        createRedisSubscriber().subscribe(Channel.NLP).run();
+        if (memoryBus != null) {
+            logger.info("waiting for messages in memory");
+            new MemorySubscriber(memoryBus, this::onMessage, subscribedCallback).subscribe(Channel.NLP).run();
+            return;
+        }
+        pool = new JedisPool(new JedisPoolConfig(), busAddress);
+        if (streams) {
+            logger.info("reading messages on host [{}] as group {}", busAddress, group);
+            streamSubscriber = createRedisStreamSubscriber(pool);
+            streamSubscriber.subscribe(Channel.NLP).run();
+        } else {
+            logger.info("waiting for messages on host [{}]", busAddress);
+            try (Jedis redis = pool.getResource()) {
+                spilled.set(redis.llen(spillKey)); // left by a previous run
+            }
+            Thread refiller = new Thread(this::refill, "nlp-spill-refill");
+            refiller.setDaemon(true);
+            subscribed = true;
+            refiller.start();
+            try {
+                createRedisSubscriber().subscribe(Channel.NLP).run();
+            } finally {
+                subscribed = false;
+            }
+            try {
+                refiller.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * called when a message has been processed, it is then removed from the stream pending entries
+     */
+    void acknowledge(final Message message) {
+        if (streamSubscriber != null) {
+            streamSubscriber.acknowledge(message);
+        }
+    }
+
+    void close() {
+        if (pool != null) {
+            pool.close();
+        }
     }
 
     void onMessage(final Message message) {
@@ -45,19 +140,124 @@ public class NlpForwarder implements DatashareListener,Monitorable {
         }
         if (message.type == EXTRACT_NLP) {
             logger.debug("forwarding message {} to message queue", message);
-            if (messageQueue.offer(message)) {
-                processed.incrementAndGet();
+            if (streamSubscriber != null || memoryBus != null) {
+                try {
+                    messageQueue.put(message); // blocks the stream reading or the memory subscriber until consumers catch up
+                    processed.incrementAndGet();
+                } catch (InterruptedException e) {
+                    logger.warn("interrupted while offering message {} to queue, it must be reprocessed later", message);
+                    if (streamSubscriber != null) {
+                        streamSubscriber.release(message);
+                    }
+                    Thread.currentThread().interrupt();
+                }
             } else {
-                logger.warn("cannot offer message {} to queue, it must be reprocessed later", message);
+                if (spilled.get() > 0 || !messageQueue.offer(message)) {
+                    spill(message); // keeps the order with the already spilled messages
+                }
+                processed.incrementAndGet();
             }
+        } else {
+            acknowledge(message);
         }
     }
 
+    /**
+     * if redis cannot be reached, the message is put in the queue, waiting for room, rather than lost
+     * or failing the subscription.
+     */
+    private void spill(Message message) {
+        spilled.incrementAndGet();
+        try (Jedis redis = pool.getResource()) {
+            redis.lpush(spillKey.getBytes(UTF_8), codec.encode(message));
+        } catch (RuntimeException e) {
+            spilled.decrementAndGet();
+            logger.error("cannot spill message " + message + " to " + spillKey + ", waiting for room in queue", e);
+            try {
+                messageQueue.put(message);
+            } catch (InterruptedException ie) {
+                logger.warn("interrupted while offering message {} to queue, it is lost", message);
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * moves the spilled messages back to the queue when it is half empty. When the subscriber has stopped,
+     * all the remaining spilled messages are moved before exiting.
+     *
+     * redis errors are retried with a backoff, the messages that cannot be decoded are logged and skipped.
+     */
+    private void refill() {
+        int lowWaterMark = (messageQueue.size() + messageQueue.remainingCapacity()) / 2;
+        long backoff = REFILL_INTERVAL_MILLIS;
+        Jedis redis = null;
+        try {
+            while (subscribed || spilled.get() > 0) {
+                try {
+                    if (spilled.get() > 0 && (!subscribed || messageQueue.remainingCapacity() >= lowWaterMark)) {
+                        redis = redis == null ? pool.getResource() : redis;
+                        byte[] bytes = redis.rpop(spillKey.getBytes(UTF_8));
+                        backoff = REFILL_INTERVAL_MILLIS;
+                        if (bytes != null) {
+                            spilled.decrementAndGet();
+                            Message message = decode(bytes);
+                            if (message != null) {
+                                messageQueue.put(message);
+                            }
+                        } else if (subscribed) {
+                            Thread.sleep(REFILL_INTERVAL_MILLIS); // the message is being pushed
+                        } else {
+                            spilled.set(0); // the list has been emptied by another consumer of the group
+                        }
+                    } else {
+                        Thread.sleep(REFILL_INTERVAL_MILLIS);
+                    }
+                } catch (RuntimeException e) {
+                    logger.error("error while moving spilled messages from " + spillKey + ", retrying in " + backoff + "ms", e);
+                    closeQuietly(redis);
+                    redis = null;
+                    Thread.sleep(backoff);
+                    backoff = Math.min(2 * backoff, MAX_REFILL_BACKOFF_MILLIS);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeQuietly(redis);
+        }
+    }
+
+    private void closeQuietly(Jedis redis) {
+        try {
+            if (redis != null) {
+                redis.close();
+            }
+        } catch (RuntimeException e) {
+            logger.warn("cannot close redis connection", e);
+        }
+    }
+
+    private Message decode(byte[] bytes) {
+        try {
+            return MessageCodec.detect(bytes).decode(bytes);
+        } catch (IOException | RuntimeException e) {
+            logger.error("cannot deserialize spilled message " + new String(bytes, UTF_8) + ", it is skipped", e);
+            return null;
+        }
+    }
+
+    private RedisStreamSubscriber createRedisStreamSubscriber(JedisPool pool) {
+        String consumer = properties.getProperty(CONSUMER_NAME_OPT, ManagementFactory.getRuntimeMXBean().getName());
+        long claimTimeout = parseLong(properties.getProperty(CLAIM_TIMEOUT_OPT, "600000"));
+        return new RedisStreamSubscriber(pool, group, consumer, READ_COUNT, claimTimeout, this::onMessage, subscribedCallback);
+    }
+
     private RedisSubscriber createRedisSubscriber() {
         return new RedisSubscriber(new Jedis(busAddress), this::onMessage, subscribedCallback);
     }
 
     public double getProgressRate() {
-        return totalToProcess.get() == 0 ? -1 : (double)(processed.get() - messageQueue.size()) / totalToProcess.get();
+        return totalToProcess.get() == 0 ? -1 : (double)(processed.get() - messageQueue.size() - spilled.get()) / totalToProcess.get();
     }
 }
@@ -0,0 +1,86 @@
+package org.icij.datashare.benchmark;
+
+import org.icij.datashare.text.nlp.Annotations;
+import org.icij.datashare.text.nlp.NlpStage;
+import org.icij.datashare.text.nlp.Tag;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.icij.datashare.text.Language.ENGLISH;
+import static org.icij.datashare.text.nlp.NlpStage.*;
+import static org.icij.datashare.text.nlp.Pipeline.Type.CORENLP;
+
+/**
+ * fills and reads the annotations of a document like a pipeline and NamedEntity.allFrom do, with the columnar
+ * annotations and with lists of tags like before. The heap usage is given by the gc profiler
+ * (gc.alloc.rate.norm is the number of bytes allocated by operation).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnnotationsBenchmark {
+    private static final String[] POS_TAGS = {"NN", "NNP", "VB", "DT", "IN", "JJ"};
+    @Param({"1000000"})
+    private int tokens;
+
+    @Benchmark
+    public long columnar() {
+        Annotations annotations = new Annotations("docId", CORENLP, ENGLISH);
+        fill((stage, begin, end, value) -> annotations.add(stage, begin, end, value));
+        long sum = 0;
+        for (Annotations.Cursor ner = annotations.cursor(NER); ner.next(); ) {
+            sum += ner.end() - ner.begin() + ner.value().length();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long tag_lists() {
+        Map<NlpStage, List<Tag>> tags = new EnumMap<>(NlpStage.class);
+        for (NlpStage stage : NlpStage.values()) {
+            tags.put(stage, new ArrayList<>());
+        }
+        fill((stage, begin, end, value) -> tags.get(stage).add(new Tag(stage, begin, end, value)));
+        long sum = 0;
+        for (Tag ner : tags.get(NER)) {
+            sum += ner.getEnd() - ner.getBegin() + ner.getValue().length();
+        }
+        return sum;
+    }
+
+    private void fill(TagSink sink) {
+        int sentenceBegin = 0;
+        for (int i = 0; i < tokens; i++) {
+            int begin = 6 * i;
+            sink.add(TOKEN, begin, begin + 5, "");
+            sink.add(POS, begin, begin + 5, POS_TAGS[i % POS_TAGS.length]);
+            if (i % 50 == 49) {
+                sink.add(NER, begin - 6, begin + 5, "PERSON");
+            }
+            if (i % 20 == 19) {
+                sink.add(SENTENCE, sentenceBegin, begin + 5, "");
+                sentenceBegin = begin + 6;
+            }
+        }
+    }
+
+    private interface TagSink {
+        void add(NlpStage stage, int begin, int end, String value);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AnnotationsBenchmark.class.getSimpleName()).addProfiler(GCProfiler.class).build()).run();
+    }
+}
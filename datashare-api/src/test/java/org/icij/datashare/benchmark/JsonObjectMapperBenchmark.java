@@ -0,0 +1,77 @@
+package org.icij.datashare.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.icij.datashare.json.JsonObjectMapper;
+import org.icij.datashare.text.NamedEntity;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.icij.datashare.json.JsonObjectMapper.MAPPER;
+import static org.icij.datashare.text.Language.ENGLISH;
+import static org.icij.datashare.text.NamedEntity.Category.PERSON;
+import static org.icij.datashare.text.nlp.Pipeline.Type.CORENLP;
+
+/**
+ * the map paths reproduce what the elasticsearch client did with the maps : write them to the request source,
+ * and read the source to a map before binding it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonObjectMapperBenchmark {
+    private NamedEntity namedEntity;
+    private Map<String, Object> joinFields;
+    private byte[] source;
+
+    @Setup
+    public void setUp() throws IOException {
+        namedEntity = NamedEntity.create(PERSON, "Jane Doe", 1234, "a9d5c2f9fbf2ce2bb0b3c0f4a3e86b46ab0e4ff5bf0d6bcd02f70a8af3d0c5a2",
+                "b1c2d3e4f5a6b7c8da9d5c2f9fbf2ce2bb0b3c0f4a3e86b46ab0e4ff5bf0d6bc", CORENLP, ENGLISH);
+        joinFields = new LinkedHashMap<>();
+        joinFields.put("type", "NamedEntity");
+        joinFields.put("rootDocument", namedEntity.getRootDocument());
+        joinFields.put("join", new HashMap<String, String>() {{ put("name", "NamedEntity"); put("parent", namedEntity.getDocumentId());}});
+        source = write_with_map();
+    }
+
+    @Benchmark
+    public byte[] write_with_map() throws IOException {
+        Map<String, Object> json = JsonObjectMapper.getJson(namedEntity);
+        json.putAll(joinFields);
+        return MAPPER.writeValueAsBytes(json);
+    }
+
+    @Benchmark
+    public byte[] write_direct() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        JsonObjectMapper.writeJson(namedEntity, joinFields, out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public NamedEntity read_with_map() throws IOException {
+        Map<String, Object> sourceAsMap = MAPPER.readValue(source, new TypeReference<Map<String, Object>>() {});
+        return JsonObjectMapper.getObject(namedEntity.getId(), sourceAsMap, NamedEntity.class);
+    }
+
+    @Benchmark
+    public NamedEntity read_direct() {
+        return JsonObjectMapper.getObject(namedEntity.getId(), source, 0, source.length, NamedEntity.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JsonObjectMapperBenchmark.class.getSimpleName()).build()).run();
+    }
+}
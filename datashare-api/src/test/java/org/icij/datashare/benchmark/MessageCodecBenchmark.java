@@ -0,0 +1,61 @@
+package org.icij.datashare.benchmark;
+
+import org.icij.datashare.com.BinaryMessageCodec;
+import org.icij.datashare.com.JsonMessageCodec;
+import org.icij.datashare.com.Message;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.icij.datashare.com.Message.Field.*;
+import static org.icij.datashare.com.Message.Type.EXTRACT_NLP;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageCodecBenchmark {
+    private Message message;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() {
+        message = new Message(EXTRACT_NLP)
+                .add(INDEX_NAME, "local-datashare")
+                .add(DOC_ID, "a9d5c2f9fbf2ce2bb0b3c0f4a3e86b46ab0e4ff5bf0d6bcd02f70a8af3d0c5a2e1b2f4c7d8e9a0b1c2d3e4f5a6b7c8d")
+                .add(R_ID, "a9d5c2f9fbf2ce2bb0b3c0f4a3e86b46ab0e4ff5bf0d6bcd02f70a8af3d0c5a2e1b2f4c7d8e9a0b1c2d3e4f5a6b7c8d");
+        json = JsonMessageCodec.INSTANCE.encode(message);
+        binary = BinaryMessageCodec.INSTANCE.encode(message);
+    }
+
+    @Benchmark
+    public byte[] json_encode() {
+        return JsonMessageCodec.INSTANCE.encode(message);
+    }
+
+    @Benchmark
+    public Message json_decode() throws IOException {
+        return JsonMessageCodec.INSTANCE.decode(json);
+    }
+
+    @Benchmark
+    public byte[] binary_encode() {
+        return BinaryMessageCodec.INSTANCE.encode(message);
+    }
+
+    @Benchmark
+    public Message binary_decode() throws IOException {
+        return BinaryMessageCodec.INSTANCE.decode(binary);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MessageCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,83 @@
+package org.icij.datashare.benchmark;
+
+import me.xuender.unidecode.Unidecode;
+import org.icij.datashare.text.Hasher;
+import org.icij.datashare.text.NamedEntity;
+import org.icij.datashare.text.nlp.Annotations;
+import org.icij.datashare.text.nlp.Tag;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.icij.datashare.text.Language.ENGLISH;
+import static org.icij.datashare.text.nlp.NlpStage.NER;
+import static org.icij.datashare.text.nlp.NlpStage.POS;
+import static org.icij.datashare.text.nlp.Pipeline.Type.CORENLP;
+
+/**
+ * the legacy benchmark computes the entity ids like NamedEntity did with Unidecode, regexp, String.join
+ * and a new MessageDigest per entity.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NamedEntityBenchmark {
+    private static final String[] MENTIONS = {"Jane Doe", "ICIJ", "Paris", "Jérôme Müller", "New  York", "Panama"};
+    @Param({"10000"})
+    private int mentions;
+    private String text;
+    private Annotations annotations;
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder();
+        annotations = new Annotations("a9d5c2f9fbf2ce2bb0b3c0f4a3e86b46ab0e4ff5bf0d6bcd02f70a8af3d0c5a2", CORENLP, ENGLISH);
+        for (int i = 0; i < mentions; i++) {
+            builder.append("said ");
+            String mention = MENTIONS[i % MENTIONS.length];
+            annotations.add(POS, builder.length(), builder.length() + mention.length(), "NNP");
+            annotations.add(NER, builder.length(), builder.length() + mention.length(), i % 2 == 0 ? "PERSON" : "LOCATION");
+            builder.append(mention).append(". ");
+        }
+        text = builder.toString();
+    }
+
+    @Benchmark
+    public List<NamedEntity> all_from() {
+        return NamedEntity.allFrom(text, annotations);
+    }
+
+    @Benchmark
+    public void ids(Blackhole blackhole) {
+        for (Tag tag : annotations.get(NER)) {
+            String mentionNorm = NamedEntity.normalize(text.substring(tag.getBegin(), tag.getEnd()));
+            blackhole.consume(Hasher.SHA_384.hash('|', annotations.getDocumentId(), String.valueOf(tag.getBegin()), CORENLP.toString(), mentionNorm));
+        }
+    }
+
+    @Benchmark
+    public void legacy_ids(Blackhole blackhole) throws NoSuchAlgorithmException {
+        for (Tag tag : annotations.get(NER)) {
+            String mentionNorm = Unidecode.decode(text.substring(tag.getBegin(), tag.getEnd())).trim().replaceAll("(\\s+)", " ").toLowerCase();
+            String message = String.join("|", annotations.getDocumentId(), String.valueOf(tag.getBegin()), CORENLP.toString(), mentionNorm);
+            MessageDigest digest = MessageDigest.getInstance("SHA-384");
+            digest.update(message.getBytes(UTF_8));
+            blackhole.consume(Hasher.getHex(digest.digest()));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(NamedEntityBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -3,8 +3,12 @@ package org.icij.datashare.com;
 import org.icij.datashare.com.Message.Field;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.util.Date;
 import java.util.HashMap;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.copyOf;
 import static org.fest.assertions.Assertions.assertThat;
 import static org.icij.datashare.com.Message.Type.EXTRACT_NLP;
 import static org.icij.datashare.com.Message.Type.SHUTDOWN;
@@ -27,4 +31,31 @@ public class MessageTest {
         assertThat(message).isEqualTo(
                 new Message(SHUTDOWN, dateTime().parseDateTime("2018-02-21T12:13:14.020Z").toDate()));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void test_binary_codec_round_trip() throws Exception {
+        Message message = new Message(EXTRACT_NLP, new Date(1519215194020L))
+                .add(Field.INDEX_NAME, "my_index").add(Field.DOC_ID, "d\u00e9j\u00e0").add(Field.R_ID, "");
+
+        byte[] bytes = BinaryMessageCodec.INSTANCE.encode(message);
+
+        assertThat(bytes.length).isLessThan(message.toJson().getBytes(UTF_8).length);
+        assertThat(BinaryMessageCodec.INSTANCE.decode(bytes)).isEqualTo(message);
+    }
+
+    @Test
+    public void test_detect_codec() throws Exception {
+        Message message = new Message(SHUTDOWN).add(Field.DOC_ID, "my_doc_id");
+        byte[] binary = BinaryMessageCodec.INSTANCE.encode(message);
+        byte[] json = JsonMessageCodec.INSTANCE.encode(message);
+
+        assertThat(MessageCodec.detect(binary).decode(binary)).isEqualTo(message);
+        assertThat(MessageCodec.detect(json).decode(json)).isEqualTo(message);
+    }
+
+    @Test(expected = IOException.class)
+    public void test_binary_codec_truncated_message() throws Exception {
+        byte[] bytes = BinaryMessageCodec.INSTANCE.encode(new Message(EXTRACT_NLP).add(Field.DOC_ID, "my_doc_id"));
+        BinaryMessageCodec.INSTANCE.decode(copyOf(bytes, bytes.length - 2));
+    }
+}
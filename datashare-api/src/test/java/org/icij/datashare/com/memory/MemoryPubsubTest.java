@@ -0,0 +1,93 @@
+package org.icij.datashare.com.memory;
+
+import org.icij.datashare.com.Message;
+import org.icij.datashare.com.ShutdownMessage;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Collections.synchronizedList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.fest.assertions.Assertions.assertThat;
+import static org.icij.datashare.com.Channel.NLP;
+import static org.icij.datashare.com.Message.Field.DOC_ID;
+import static org.icij.datashare.com.Message.Type.EXTRACT_NLP;
+
+public class MemoryPubsubTest {
+    private ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+    @Test
+    public void test_publish_subscribe() throws Exception {
+        MemoryPublisher publisher = new MemoryPublisher();
+        CountDownLatch latch = new CountDownLatch(1);
+        List<Message> msgList = synchronizedList(new ArrayList<Message>());
+        executorService.submit(new MemorySubscriber(publisher, msgList::add, latch::countDown).subscribe(NLP));
+        latch.await(2, SECONDS);
+
+        Message doc_id = new Message(EXTRACT_NLP).add(DOC_ID, "doc_id");
+        publisher.publish(NLP, doc_id);
+        publisher.publish(NLP, new ShutdownMessage());
+
+        executorService.shutdown();
+        assertThat(executorService.awaitTermination(1, SECONDS)).isTrue();
+        assertThat(msgList.get(0)).isSameAs(doc_id);
+    }
+
+    @Test(timeout = 5000)
+    public void test_publish_waits_for_room_in_the_subscriber_mailbox() throws Exception {
+        MemoryPublisher publisher = new MemoryPublisher();
+        CountDownLatch subscribed = new CountDownLatch(1);
+        CountDownLatch consumerBlocked = new CountDownLatch(1);
+        List<Message> received = synchronizedList(new ArrayList<>());
+        executorService.submit(new MemorySubscriber(publisher, m -> {
+            try {
+                consumerBlocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            received.add(m);
+        }, subscribed::countDown, 2).subscribe(NLP));
+        subscribed.await(2, SECONDS);
+
+        AtomicInteger published = new AtomicInteger();
+        ExecutorService producer = Executors.newSingleThreadExecutor();
+        producer.submit(() -> {
+            for (int i = 0; i < 10; i++) {
+                publisher.publish(NLP, new Message(EXTRACT_NLP).add(DOC_ID, "doc" + i));
+                published.incrementAndGet();
+            }
+            publisher.publish(NLP, new ShutdownMessage());
+        });
+        Thread.sleep(200);
+        assertThat(published.get()).isLessThanOrEqualTo(3);
+
+        consumerBlocked.countDown();
+        producer.shutdown();
+        assertThat(producer.awaitTermination(2, SECONDS)).isTrue();
+        executorService.shutdown();
+        assertThat(executorService.awaitTermination(2, SECONDS)).isTrue();
+        assertThat(received).hasSize(11);
+        assertThat(received.get(9).content.get(DOC_ID)).isEqualTo("doc9");
+    }
+
+    @Test
+    public void test_messages_without_subscriber_are_lost() throws Exception {
+        MemoryPublisher publisher = new MemoryPublisher();
+        publisher.publish(NLP, new Message(EXTRACT_NLP).add(DOC_ID, "lost"));
+
+        CountDownLatch latch = new CountDownLatch(1);
+        List<Message> msgList = synchronizedList(new ArrayList<Message>());
+        executorService.submit(new MemorySubscriber(publisher, msgList::add, latch::countDown).subscribe(NLP));
+        latch.await(2, SECONDS);
+        publisher.publish(NLP, new ShutdownMessage());
+
+        executorService.shutdown();
+        assertThat(executorService.awaitTermination(1, SECONDS)).isTrue();
+        assertThat(msgList).hasSize(1);
+    }
+}
@@ -4,6 +4,7 @@ import org.icij.datashare.com.Message;
 import org.icij.datashare.com.ShutdownMessage;
 import org.junit.Test;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -11,6 +12,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+import static java.util.Collections.singletonList;
 import static java.util.Collections.synchronizedList;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.fest.assertions.Assertions.assertThat;
@@ -38,6 +40,72 @@ public class JedisPubsubTest {
         assertThat(msgList.get(0)).isEqualTo(doc_id);
     }
 
+    @Test
+    public void test_batch_publish_subscribe() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        List<Message> msgList = synchronizedList(new ArrayList<Message>());
+        executorService.submit(new RedisSubscriber(createJedis(), msgList::add, latch::countDown).subscribe(NLP));
+        latch.await(2, SECONDS);
+
+        RedisBatchPublisher publisher = new RedisBatchPublisher(new JedisPool("redis"), 2);
+        Message doc1 = new Message(EXTRACT_NLP).add(DOC_ID, "doc1");
+        Message doc2 = new Message(EXTRACT_NLP).add(DOC_ID, "doc2");
+        Message doc3 = new Message(EXTRACT_NLP).add(DOC_ID, "doc3");
+        publisher.publish(NLP, doc1);
+        publisher.publish(NLP, doc2);
+        publisher.publish(NLP, doc3);
+        publisher.publish(NLP, new ShutdownMessage());
+
+        executorService.shutdown();
+        executorService.awaitTermination(1, SECONDS);
+        publisher.close();
+        assertThat(msgList.subList(0, 3)).containsExactly(doc1, doc2, doc3);
+    }
+
+    @Test
+    public void test_stream_publish_subscribe_with_consumer_group() throws Exception {
+        JedisPool pool = new JedisPool("redis");
+        createJedis().del(NLP.name());
+        RedisStreamPublisher publisher = new RedisStreamPublisher(pool, 0);
+        Message doc_id = new Message(EXTRACT_NLP).add(DOC_ID, "doc_id");
+        publisher.publish(NLP, doc_id); // published before the group exists
+
+        CountDownLatch latch = new CountDownLatch(1);
+        List<Message> msgList = synchronizedList(new ArrayList<Message>());
+        RedisStreamSubscriber subscriber = new RedisStreamSubscriber(pool, "group", "consumer", 10, 60000, msgList::add, latch::countDown);
+        executorService.submit(subscriber.subscribe(NLP));
+        latch.await(2, SECONDS);
+        publisher.publish(NLP, new ShutdownMessage());
+        executorService.shutdown();
+        executorService.awaitTermination(2, SECONDS);
+
+        assertThat(msgList.get(0)).isEqualTo(doc_id);
+        assertThat(msgList.get(1).type).isEqualTo(Message.Type.SHUTDOWN);
+        assertThat(createJedis().eval("return redis.call('XPENDING', KEYS[1], ARGV[1])[1]", singletonList(NLP.name()), singletonList("group"))).isEqualTo(1L);
+        msgList.forEach(subscriber::acknowledge);
+        assertThat(createJedis().eval("return redis.call('XPENDING', KEYS[1], ARGV[1])[1]", singletonList(NLP.name()), singletonList("group"))).isEqualTo(0L);
+        pool.close();
+    }
+
+    @Test
+    public void test_stream_control_messages_are_received_by_all_the_consumers_of_a_group() throws Exception {
+        JedisPool pool = new JedisPool("redis");
+        createJedis().del(NLP.name());
+        ExecutorService consumers = Executors.newFixedThreadPool(2);
+        CountDownLatch latch = new CountDownLatch(2);
+        List<Message> msgList = synchronizedList(new ArrayList<Message>());
+        consumers.submit(new RedisStreamSubscriber(pool, "group", "consumer1", 10, 60000, msgList::add, latch::countDown).subscribe(NLP));
+        consumers.submit(new RedisStreamSubscriber(pool, "group", "consumer2", 10, 60000, msgList::add, latch::countDown).subscribe(NLP));
+        latch.await(2, SECONDS);
+
+        new RedisStreamPublisher(pool, 0).publish(NLP, new ShutdownMessage());
+        consumers.shutdown();
+
+        assertThat(consumers.awaitTermination(2, SECONDS)).isTrue();
+        assertThat(msgList).hasSize(2);
+        pool.close();
+    }
+
     private Jedis createJedis() {
         return new Jedis("redis");
     }
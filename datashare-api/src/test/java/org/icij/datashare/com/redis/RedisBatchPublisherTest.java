@@ -0,0 +1,102 @@
+package org.icij.datashare.com.redis;
+
+import org.icij.datashare.com.JsonMessageCodec;
+import org.icij.datashare.com.Message;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.Collections.synchronizedList;
+import static org.fest.assertions.Assertions.assertThat;
+import static org.icij.datashare.com.Channel.NLP;
+import static org.icij.datashare.com.Message.Field.DOC_ID;
+import static org.icij.datashare.com.Message.Type.EXTRACT_NLP;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class RedisBatchPublisherTest {
+    private final AtomicBoolean redisUp = new AtomicBoolean(false);
+    private final List<Message> published = synchronizedList(new ArrayList<>());
+    private final JedisPool pool = mock(JedisPool.class);
+    private RedisBatchPublisher publisher;
+
+    @Before
+    public void setUp() {
+        Pipeline pipeline = mock(Pipeline.class);
+        List<Message> pipelined = new ArrayList<>();
+        when(pipeline.publish(any(byte[].class), any(byte[].class))).thenAnswer(invocation -> {
+            pipelined.add(JsonMessageCodec.INSTANCE.decode((byte[]) invocation.getArguments()[1]));
+            return null;
+        });
+        doAnswer(invocation -> {
+            if (!redisUp.get()) {
+                pipelined.clear();
+                throw new JedisConnectionException("connection refused");
+            }
+            published.addAll(pipelined);
+            pipelined.clear();
+            return null;
+        }).when(pipeline).sync();
+        Jedis jedis = mock(Jedis.class);
+        when(jedis.pipelined()).thenReturn(pipeline);
+        when(pool.getResource()).thenReturn(jedis);
+    }
+
+    @After
+    public void tearDown() {
+        redisUp.set(true);
+        publisher.close();
+    }
+
+    @Test(timeout = 5000)
+    public void test_messages_are_sent_again_when_redis_is_back() throws Exception {
+        publisher = new RedisBatchPublisher(pool, 2, JsonMessageCodec.INSTANCE, 10);
+        Message doc1 = message("doc1");
+        Message doc2 = message("doc2");
+        Message doc3 = message("doc3");
+        publisher.publish(NLP, doc1);
+        publisher.publish(NLP, doc2);
+        publisher.publish(NLP, doc3);
+        Thread.sleep(200);
+        assertThat(published).isEmpty();
+        verify(pool, atMost(4)).getResource(); // waits between the attempts
+
+        redisUp.set(true);
+        while (publisher.queued() > 0) {
+            Thread.sleep(10);
+        }
+
+        assertThat(published).containsExactly(doc1, doc2, doc3);
+    }
+
+    @Test(timeout = 5000)
+    public void test_publish_waits_when_the_queue_is_full() throws Exception {
+        publisher = new RedisBatchPublisher(pool, 1, JsonMessageCodec.INSTANCE, 2);
+        publisher.publish(NLP, message("doc1"));
+        publisher.publish(NLP, message("doc2"));
+        Thread blocked = new Thread(() -> publisher.publish(NLP, message("doc3")));
+        blocked.start();
+        blocked.join(200);
+        assertThat(blocked.isAlive()).isTrue();
+
+        redisUp.set(true);
+        blocked.join();
+        while (publisher.queued() > 0) {
+            Thread.sleep(10);
+        }
+
+        assertThat(published).hasSize(3);
+    }
+
+    private static Message message(String id) {
+        return new Message(EXTRACT_NLP).add(DOC_ID, id);
+    }
+}
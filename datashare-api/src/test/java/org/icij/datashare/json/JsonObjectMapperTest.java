@@ -0,0 +1,80 @@
+package org.icij.datashare.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.icij.datashare.text.Document;
+import org.icij.datashare.text.NamedEntity;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.icij.datashare.text.Language.ENGLISH;
+import static org.icij.datashare.text.Language.FRENCH;
+import static org.icij.datashare.text.NamedEntity.Category.PERSON;
+import static org.icij.datashare.text.Project.project;
+import static org.icij.datashare.text.nlp.Pipeline.Type.CORENLP;
+
+public class JsonObjectMapperTest {
+    private final NamedEntity namedEntity = NamedEntity.create(PERSON, "Jane Doe", 12, "docId", "rootId", CORENLP, ENGLISH);
+
+    @Test
+    public void test_write_json_with_extra_fields() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonObjectMapper.writeJson(namedEntity, new LinkedHashMap<String, Object>() {{
+            put("type", "NamedEntity");
+            put("rootDocument", "otherRoot");
+            put("join", new HashMap<String, String>() {{ put("name", "NamedEntity"); put("parent", "docId");}});
+        }}, out);
+
+        Map<String, Object> json = new ObjectMapper().enable(JsonParser.Feature.STRICT_DUPLICATE_DETECTION).readValue(out.toByteArray(), Map.class);
+        Map<String, Object> expected = JsonObjectMapper.getJson(namedEntity);
+        expected.put("type", "NamedEntity");
+        expected.put("rootDocument", "otherRoot");
+        expected.put("join", new HashMap<String, String>() {{ put("name", "NamedEntity"); put("parent", "docId");}});
+        assertThat(json).isEqualTo(expected);
+    }
+
+    @Test
+    public void test_get_object_from_bytes() throws Exception {
+        byte[] source = ("   " + JsonObjectMapper.MAPPER.writeValueAsString(JsonObjectMapper.getJson(namedEntity))).getBytes();
+
+        NamedEntity actual = JsonObjectMapper.getObject(namedEntity.getId(), source, 3, source.length - 3, NamedEntity.class);
+
+        assertThat(actual).isEqualTo(namedEntity);
+        assertThat(actual.getMention()).isEqualTo("Jane Doe");
+        assertThat(actual.getRootDocument()).isEqualTo("rootId");
+    }
+
+    @Test
+    public void test_get_object_from_bytes_with_type_field() throws Exception {
+        byte[] source = "{\"type\":\"Unknown\",\"id\":\"foo\"}".getBytes();
+
+        assertThat((NamedEntity) JsonObjectMapper.getObject("id", source, 0, source.length, "type",
+                t -> "Unknown".equals(t) ? null : NamedEntity.class)).isNull();
+    }
+
+    @Test
+    public void test_index_fields() {
+        assertThat(JsonObjectMapper.getType(namedEntity)).isEqualTo("NamedEntity");
+        assertThat(JsonObjectMapper.getId(namedEntity)).isEqualTo(namedEntity.getId());
+        assertThat(JsonObjectMapper.getParent(namedEntity)).isEqualTo("docId");
+        assertThat(JsonObjectMapper.getRoot(namedEntity)).isEqualTo("rootId");
+    }
+
+    @Test
+    public void test_index_fields_of_document() {
+        Document document = new Document(project("prj"), Paths.get("path"), "content", FRENCH, Charset.defaultCharset(),
+                "text/plain", new HashMap<>(), Document.Status.INDEXED, 123L);
+
+        assertThat(JsonObjectMapper.getType(document)).isEqualTo("Document");
+        assertThat(JsonObjectMapper.getId(document)).isNull();
+        assertThat(JsonObjectMapper.getParent(document)).isNull();
+        assertThat(JsonObjectMapper.getRoot(document)).isNull();
+    }
+}
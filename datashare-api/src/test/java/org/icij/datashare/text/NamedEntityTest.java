@@ -0,0 +1,26 @@
+package org.icij.datashare.text;
+
+import me.xuender.unidecode.Unidecode;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class NamedEntityTest {
+    @Test
+    public void test_normalize_ascii() {
+        assertThat(NamedEntity.normalize("jane doe")).isSameAs("jane doe");
+        assertThat(NamedEntity.normalize("  Jane \t\n Doe\r\n")).isEqualTo("jane doe");
+        assertThat(NamedEntity.normalize("Jane\u0001Doe")).isEqualTo(reference("Jane\u0001Doe"));
+    }
+
+    @Test
+    public void test_normalize_non_ascii() {
+        assertThat(NamedEntity.normalize("  Jérôme   Müller ")).isEqualTo("jerome muller");
+        assertThat(NamedEntity.normalize("Ἀθῆναι")).isEqualTo(reference("Ἀθῆναι"));
+        assertThat(NamedEntity.normalize("北京 市")).isEqualTo(reference("北京 市"));
+    }
+
+    private static String reference(String mention) {
+        return Unidecode.decode(mention).trim().replaceAll("(\\s+)", " ").toLowerCase();
+    }
+}
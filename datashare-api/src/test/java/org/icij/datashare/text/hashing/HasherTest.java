@@ -3,6 +3,9 @@ package org.icij.datashare.text.hashing;
 import org.icij.datashare.text.Hasher;
 import org.junit.Test;
 
+import java.security.MessageDigest;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.fest.assertions.Assertions.assertThat;
 
 public class HasherTest {
@@ -33,6 +36,16 @@ public class HasherTest {
                         "43e06ee3299b770aa7ff72aa9ccc470725ca3d12c1f0aa1fd85c2eb83fc");
     }
 
+    @Test
+    public void test_hash_parts_is_hash_of_joined_parts() throws Exception {
+        assertThat(Hasher.SHA_384.hash('|', "docId", "12", "CORENLP", "jane doe")).
+                isEqualTo(Hasher.SHA_384.hash("docId|12|CORENLP|jane doe"));
+
+        String joined = String.join("|", "caf\u00e9", "null", "\u4e2d\u6587", "\ud83d\ude00", "\ud83d");
+        assertThat(Hasher.SHA_256.hash('|', "caf\u00e9", null, "\u4e2d\u6587", "\ud83d\ude00", "\ud83d")).
+                isEqualTo(Hasher.getHex(MessageDigest.getInstance("SHA-256").digest(joined.getBytes(UTF_8))));
+    }
+
     @Test
     public void test_shorten() throws Exception {
         assertThat(Hasher.shorten("my_very_long_hash_string", 2)).isEqualTo("my...ng");
@@ -1,10 +1,13 @@
 package org.icij.datashare.text.nlp;
 
 import org.icij.datashare.text.Language;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.fest.assertions.MapAssert.entry;
@@ -12,6 +15,13 @@ import static org.icij.datashare.text.Language.*;
 
 public class AbstractModelsTest {
     @Before public void setUp() { System.clearProperty(AbstractModels.JVM_PROPERTY_NAME);}
+    @After public void tearDown() throws Exception {
+        AbstractModels.memoryBudget(0);
+        for (ConcreteModelsForTesting models : ConcreteModelsForTesting.instances) {
+            for (Language language : Language.values()) models.unload(language);
+        }
+        ConcreteModelsForTesting.instances.clear();
+    }
 
     @Test
     public void test_sync_models_true_by_default() throws Exception {
@@ -42,13 +52,91 @@ public class AbstractModelsTest {
         assertThat(models.hasBeenDownloaded).isFalse();
     }
 
+    @Test
+    public void test_hit_miss_metrics() throws Exception {
+        ConcreteModelsForTesting models = new ConcreteModelsForTesting(Pipeline.Type.CORENLP, NlpStage.NER);
+        models.get(FRENCH);
+        models.get(FRENCH);
+        models.get(FRENCH);
+
+        assertThat(models.getMisses()).isEqualTo(1);
+        assertThat(models.getHits()).isEqualTo(2);
+        assertThat(models.getLoadTimeMillis()).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test
+    public void test_least_recently_used_models_are_unloaded_when_memory_budget_is_exceeded() throws Exception {
+        AbstractModels.syncModels(false);
+        ConcreteModelsForTesting models = new ConcreteModelsForTesting(Pipeline.Type.CORENLP, NlpStage.NER);
+        models.size = 1000;
+        AbstractModels.memoryBudget(AbstractModels.getLoadedSize() + 2 * models.size);
+        models.get(ENGLISH);
+        models.get(SPANISH);
+        models.get(ENGLISH);
+
+        models.get(GERMAN);
+
+        assertThat(models.isLoaded(ENGLISH)).isTrue();
+        assertThat(models.isLoaded(SPANISH)).isFalse();
+        assertThat(models.isLoaded(GERMAN)).isTrue();
+    }
+
+    @Test
+    public void test_unload_listeners_are_called_when_a_model_is_evicted() throws Exception {
+        AbstractModels.syncModels(false);
+        ConcreteModelsForTesting models = new ConcreteModelsForTesting(Pipeline.Type.CORENLP, NlpStage.NER);
+        List<Language> unloaded = new ArrayList<>();
+        models.onUnload(unloaded::add);
+        models.size = 1000;
+        AbstractModels.memoryBudget(AbstractModels.getLoadedSize() + models.size);
+        models.get(ENGLISH);
+
+        models.get(SPANISH);
+
+        assertThat(unloaded).containsOnly(ENGLISH);
+    }
+
+    @Test
+    public void test_copies_of_a_model_are_counted_in_the_memory_budget() throws Exception {
+        AbstractModels.syncModels(false);
+        ConcreteModelsForTesting models = new ConcreteModelsForTesting(Pipeline.Type.CORENLP, NlpStage.NER);
+        models.size = 1000;
+        AbstractModels.memoryBudget(AbstractModels.getLoadedSize() + 2 * models.size);
+        models.get(ENGLISH);
+        HashMap spanish = models.get(SPANISH);
+        long loadedSize = AbstractModels.getLoadedSize();
+
+        models.addSize(SPANISH, spanish, models.size);
+
+        assertThat(AbstractModels.getLoadedSize()).isEqualTo(loadedSize);
+        assertThat(models.isLoaded(ENGLISH)).isFalse();
+        assertThat(models.isLoaded(SPANISH)).isTrue();
+    }
+
+    @Test
+    public void test_copies_of_an_unloaded_model_are_not_counted() throws Exception {
+        AbstractModels.syncModels(false);
+        ConcreteModelsForTesting models = new ConcreteModelsForTesting(Pipeline.Type.CORENLP, NlpStage.NER);
+        models.size = 1000;
+        HashMap italian = models.get(ITALIAN);
+        models.unload(ITALIAN);
+        long loadedSize = AbstractModels.getLoadedSize();
+
+        models.addSize(ITALIAN, italian, models.size);
+
+        assertThat(AbstractModels.getLoadedSize()).isEqualTo(loadedSize);
+    }
+
     private static class ConcreteModelsForTesting extends AbstractModels<HashMap> {
+        static final List<ConcreteModelsForTesting> instances = new ArrayList<>();
+        long size = 0;
         boolean hasBeenDownloaded = false;
-        ConcreteModelsForTesting(Pipeline.Type type, NlpStage stage) { super(type, stage);}
+        ConcreteModelsForTesting(Pipeline.Type type, NlpStage stage) { super(type, stage); instances.add(this);}
         @Override protected HashMap loadModelFile(Language language, ClassLoader loader) { return new HashMap() {{
             put("foo", "bar");
         }};}
         @Override protected String getVersion() { return "1.0";}
+        @Override protected long estimateSize(Language language, HashMap model) { return size;}
         @Override protected void downloadIfNecessary(Language language, ClassLoader loader) { this.hasBeenDownloaded = true;}
     }
 }
@@ -0,0 +1,76 @@
+package org.icij.datashare.text.nlp;
+
+import org.junit.Test;
+
+import java.util.EnumSet;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.icij.datashare.text.Language.ENGLISH;
+import static org.icij.datashare.text.nlp.NlpStage.NER;
+import static org.icij.datashare.text.nlp.NlpStage.POS;
+import static org.icij.datashare.text.nlp.NlpStage.TOKEN;
+
+public class AnnotationsTest {
+    private final Annotations annotations = new Annotations("docId", Pipeline.Type.CORENLP, ENGLISH);
+
+    @Test
+    public void test_cursor() {
+        for (int i = 0; i < 100; i++) {
+            annotations.add(POS, 10 * i, 10 * i + 5, i % 2 == 0 ? "NN" : "VB");
+        }
+        annotations.add(TOKEN, 0, 5);
+
+        Annotations.Cursor cursor = annotations.cursor(POS);
+        for (int i = 0; i < 100; i++) {
+            assertThat(cursor.next()).isTrue();
+            assertThat(cursor.begin()).isEqualTo(10 * i);
+            assertThat(cursor.end()).isEqualTo(10 * i + 5);
+            assertThat(cursor.value()).isEqualTo(i % 2 == 0 ? "NN" : "VB");
+        }
+        assertThat(cursor.next()).isFalse();
+        assertThat(annotations.size(POS)).isEqualTo(100);
+        assertThat(annotations.size(TOKEN)).isEqualTo(1);
+        assertThat(annotations.size(NER)).isEqualTo(0);
+    }
+
+    @Test
+    public void test_get_tags() {
+        annotations.add(TOKEN, 0, 5);
+        annotations.add(NER, 6, 10, "PERSON");
+
+        assertThat(annotations.get(TOKEN)).hasSize(1);
+        assertThat(annotations.get(TOKEN).get(0).getValue()).isEqualTo("");
+        Tag ner = annotations.get(NER).get(0);
+        assertThat(ner.getStage()).isEqualTo(NER);
+        assertThat(ner.getBegin()).isEqualTo(6);
+        assertThat(ner.getEnd()).isEqualTo(10);
+        assertThat(ner.getValue()).isEqualTo("PERSON");
+    }
+
+    @Test
+    public void test_search() {
+        annotations.add(POS, 0, 5, "NN");
+        annotations.add(POS, 6, 10, "VB");
+        annotations.add(POS, 11, 15, "NN");
+
+        assertThat(annotations.search(POS, 6)).isEqualTo(1);
+        assertThat(annotations.search(POS, 7)).isEqualTo(-3);
+        assertThat(annotations.search(NER, 0)).isEqualTo(-1);
+    }
+
+    @Test
+    public void test_only_retained_stages_are_stored() {
+        Annotations nerOnly = new Annotations("docId", Pipeline.Type.CORENLP, ENGLISH, EnumSet.of(NER));
+        nerOnly.add(TOKEN, 0, 5);
+        nerOnly.add(POS, 0, 5, "NNP");
+        nerOnly.add(NER, 0, 5, "PERSON");
+
+        assertThat(nerOnly.retains(NER)).isTrue();
+        assertThat(nerOnly.retains(POS)).isFalse();
+        assertThat(nerOnly.size(TOKEN)).isEqualTo(0);
+        assertThat(nerOnly.get(POS)).isEmpty();
+        assertThat(nerOnly.cursor(POS).next()).isFalse();
+        assertThat(nerOnly.search(POS, 0)).isEqualTo(-1);
+        assertThat(nerOnly.size(NER)).isEqualTo(1);
+    }
+}
@@ -0,0 +1,135 @@
+package org.icij.datashare.text.nlp;
+
+import org.icij.datashare.com.Message;
+import org.icij.datashare.com.ShutdownMessage;
+import org.icij.datashare.function.Pair;
+import org.icij.datashare.text.Document;
+import org.icij.datashare.text.Language;
+import org.icij.datashare.text.indexing.Indexer;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mock;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static java.nio.file.Paths.get;
+import static java.util.Arrays.asList;
+import static org.fest.assertions.Assertions.assertThat;
+import static org.icij.datashare.com.Message.Field.*;
+import static org.icij.datashare.com.Message.Type.EXTRACT_NLP;
+import static org.icij.datashare.text.Document.Status.INDEXED;
+import static org.icij.datashare.text.Language.ENGLISH;
+import static org.icij.datashare.text.Language.FRENCH;
+import static org.icij.datashare.text.Project.project;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class LanguageSchedulerTest {
+    @Mock private Indexer indexer;
+    @Mock private AbstractPipeline pipeline;
+    private final BlockingQueue<Message> queue = new LinkedBlockingQueue<>();
+    private LanguageScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+        scheduler = new LanguageScheduler(pipeline, indexer, queue, 10);
+    }
+
+    @Test(timeout = 5000)
+    public void test_messages_are_taken_by_language() throws Exception {
+        Message fr1 = message("fr1", 1000);
+        Message en = message("en", 2000);
+        Message fr2 = message("fr2", 3000);
+        when(indexer.<Document>get(eq("prj"), Matchers.<List<Pair<String, String>>>any(), eq("language"))).thenReturn(asList(doc(FRENCH), doc(ENGLISH), doc(FRENCH)));
+        queue.addAll(asList(fr1, en, fr2, new ShutdownMessage()));
+
+        scheduler.run();
+
+        LanguageScheduler.Batch first = scheduler.take(null, 10);
+        assertThat(first.language).isEqualTo(FRENCH);
+        assertThat(first.messages).containsExactly(fr1, fr2);
+        verify(pipeline, never()).terminate(any(Language.class));
+
+        LanguageScheduler.Batch second = scheduler.take(FRENCH, 10);
+        assertThat(second.language).isEqualTo(ENGLISH);
+        assertThat(second.messages).containsExactly(en);
+        verify(pipeline).terminate(FRENCH);
+
+        assertThat(scheduler.take(ENGLISH, 10)).isNull();
+    }
+
+    @Test(timeout = 5000)
+    public void test_models_are_terminated_without_holding_the_scheduler_lock() throws Exception {
+        List<Boolean> lockHeld = new ArrayList<>();
+        doAnswer(invocation -> lockHeld.add(Thread.holdsLock(scheduler))).when(pipeline).terminate(any(Language.class));
+        when(indexer.<Document>get(eq("prj"), Matchers.<List<Pair<String, String>>>any(), eq("language"))).thenReturn(asList(doc(FRENCH), doc(ENGLISH)));
+        queue.addAll(asList(message("fr", 1000), message("en", 2000), new ShutdownMessage()));
+        scheduler.run();
+
+        scheduler.take(scheduler.take(null, 10).language, 10);
+        scheduler.leave(ENGLISH);
+
+        assertThat(lockHeld).containsExactly(false, false);
+    }
+
+    @Test(timeout = 5000)
+    public void test_consumer_switches_language_when_another_language_waits_too_long() throws Exception {
+        Message en = message("en", 0);
+        Message fr = message("fr", LanguageScheduler.MAX_WAIT_MILLIS + 1);
+        when(indexer.<Document>get(eq("prj"), Matchers.<List<Pair<String, String>>>any(), eq("language"))).thenReturn(asList(doc(ENGLISH), doc(FRENCH)));
+        queue.addAll(asList(en, fr, new ShutdownMessage()));
+        scheduler.run();
+
+        assertThat(scheduler.take(FRENCH, 10).language).isEqualTo(ENGLISH);
+    }
+
+    @Test(timeout = 5000)
+    public void test_unknown_language_when_document_is_not_found() throws Exception {
+        when(indexer.<Document>get(eq("prj"), Matchers.<List<Pair<String, String>>>any(), eq("language"))).thenReturn(asList((Document) null));
+        queue.addAll(asList(message("id", 0), new ShutdownMessage()));
+        scheduler.run();
+
+        assertThat(scheduler.take(null, 10).language).isEqualTo(Language.UNKNOWN);
+    }
+
+    @Test(timeout = 5000)
+    public void test_languages_are_read_again_when_the_index_request_fails() throws Exception {
+        when(indexer.<Document>get(eq("prj"), Matchers.<List<Pair<String, String>>>any(), eq("language")))
+                .thenThrow(new IOException("timeout")).thenReturn(asList(doc(FRENCH)));
+        queue.addAll(asList(message("id", 0), new ShutdownMessage()));
+        scheduler.run();
+
+        assertThat(scheduler.take(null, 10).language).isEqualTo(FRENCH);
+    }
+
+    @Test(timeout = 5000)
+    public void test_await_done_returns_after_timeout_when_messages_are_not_processed() throws Exception {
+        when(indexer.<Document>get(eq("prj"), Matchers.<List<Pair<String, String>>>any(), eq("language"))).thenReturn(asList(doc(FRENCH)));
+        queue.addAll(asList(message("id", 0), new ShutdownMessage()));
+        scheduler.run();
+
+        assertThat(scheduler.awaitDone(100)).isFalse();
+        scheduler.done(scheduler.take(null, 10));
+        assertThat(scheduler.awaitDone(100)).isTrue();
+    }
+
+    private static Message message(String id, long date) {
+        return new Message(EXTRACT_NLP, new Date(date)).add(INDEX_NAME, "prj").add(DOC_ID, id).add(R_ID, id);
+    }
+
+    private static Document doc(Language language) {
+        return new Document(project("prj"), get("doc/path"), "", language, Charset.defaultCharset(),
+                "text/plain", new HashMap<>(), INDEXED, 0L);
+    }
+}
@@ -4,6 +4,7 @@ import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.com.Channel;
 import org.icij.datashare.com.Message;
 import org.icij.datashare.com.ShutdownMessage;
+import org.icij.datashare.com.memory.MemoryPublisher;
 import org.icij.datashare.com.redis.RedisPublisher;
 import org.icij.datashare.text.Document;
 import org.icij.datashare.text.Language;
@@ -33,6 +34,7 @@ import static org.icij.datashare.com.Message.Type.INIT_MONITORING;
 import static org.icij.datashare.text.Document.Status.INDEXED;
 import static org.icij.datashare.text.Language.FRENCH;
 import static org.icij.datashare.text.nlp.NlpApp.NLP_PARALLELISM_OPT;
+import static org.icij.datashare.text.nlp.NlpForwarder.QUEUE_CAPACITY_OPT;
 import static org.icij.datashare.text.nlp.Pipeline.Type.CORENLP;
 import static org.icij.datashare.text.nlp.Pipeline.Type.OPENNLP;
 import static org.mockito.Matchers.any;
@@ -80,6 +82,34 @@ public class NlpAppTest {
         verify(pipeline, times(3)).process(anyString(), anyString(), any(Language.class));
     }
 
+    @Test(timeout = 5000)
+    public void test_nlp_app_spills_messages_when_queue_is_full() throws Exception {
+        runNlpApp("1", 100, "1");
+
+        IntStream.range(1,6).forEach(i -> publisher.publish(Channel.NLP, new Message(EXTRACT_NLP).add(DOC_ID, "doc_id" + i).add(R_ID, "routing" + i).add(INDEX_NAME, local().id)));
+        publisher.publish(Channel.NLP, new ShutdownMessage());
+
+        shutdownNlpApp();
+        verify(pipeline, times(5)).process(anyString(), anyString(), any(Language.class));
+    }
+
+    @Test(timeout = 5000)
+    public void test_in_memory_bus() throws Exception {
+        MemoryPublisher memoryPublisher = new MemoryPublisher();
+        Properties properties = new Properties();
+        properties.setProperty(NLP_PARALLELISM_OPT, "2");
+        CountDownLatch latch = new CountDownLatch(1);
+        executor.execute(new NlpApp(indexer, pipeline, properties, latch::countDown, 1, local(), memoryPublisher));
+        latch.await(2, SECONDS);
+
+        memoryPublisher.publish(Channel.NLP, new Message(EXTRACT_NLP).add(DOC_ID, "doc_id1").add(R_ID, "routing1").add(INDEX_NAME, local().id));
+        memoryPublisher.publish(Channel.NLP, new Message(EXTRACT_NLP).add(DOC_ID, "doc_id2").add(R_ID, "routing2").add(INDEX_NAME, local().id));
+        memoryPublisher.publish(Channel.NLP, new ShutdownMessage());
+
+        shutdownNlpApp();
+        verify(pipeline, times(2)).process(anyString(), anyString(), any(Language.class));
+    }
+
     @Test(timeout = 5000)
     public void test_nlp_app_progress_rate() throws Exception {
         NlpApp nlpApp = runNlpApp("1", 0);
@@ -109,8 +139,13 @@ public class NlpAppTest {
     }
 
     private NlpApp runNlpApp(String parallelism, int nlpProcessDelayMillis) throws InterruptedException {
+        return runNlpApp(parallelism, nlpProcessDelayMillis, "10");
+    }
+
+    private NlpApp runNlpApp(String parallelism, int nlpProcessDelayMillis, String queueCapacity) throws InterruptedException {
         Properties properties = new Properties();
         properties.setProperty(NLP_PARALLELISM_OPT, parallelism);
+        properties.setProperty(QUEUE_CAPACITY_OPT, queueCapacity);
         properties.setProperty("messageBusAddress", "redis");
         CountDownLatch latch = new CountDownLatch(1);
 
@@ -1,20 +1,36 @@
 package org.icij.datashare.text.nlp;
 
+import org.icij.datashare.com.Message;
+import org.icij.datashare.function.Pair;
 import org.icij.datashare.text.Document;
 import org.icij.datashare.text.Language;
+import org.icij.datashare.text.NamedEntity;
 import org.icij.datashare.text.indexing.Indexer;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
 import org.mockito.Mock;
 
+import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.icij.datashare.com.Message.Field.*;
+import static org.icij.datashare.com.Message.Type.EXTRACT_NLP;
 import static org.icij.datashare.text.Language.FRENCH;
 import static org.icij.datashare.text.Project.project;
+import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -29,6 +45,11 @@ public class NlpConsumerTest {
         nlpListener = new NlpConsumer(pipeline, indexer,  null);
     }
 
+    @Test
+    public void test_consumer_retains_only_ner_annotations() {
+        verify(pipeline).retainStages(EnumSet.of(NlpStage.NER));
+    }
+
     @Test
     public void test_on_message_does_nothing__when_doc_not_found_in_index() throws Exception {
         nlpListener.findNamedEntities("projectName","unknownId", "routing");
@@ -61,4 +82,103 @@ public class NlpConsumerTest {
         verify(pipeline).initialize(FRENCH);
         verify(pipeline).process("content", doc.getId(), FRENCH);
     }
+
+    @Test
+    public void test_batch_of_messages_gets_documents_in_one_call() throws Exception {
+        when(pipeline.initialize(any())).thenReturn(true);
+        Document doc1 = new Document(project("prj"), Paths.get("/path/to/doc1"), "content1", FRENCH,
+                Charset.defaultCharset(), "test/plain", new HashMap<>(), Document.Status.INDEXED, 432L);
+        Document doc2 = new Document(project("prj"), Paths.get("/path/to/doc2"), "content2", FRENCH,
+                Charset.defaultCharset(), "test/plain", new HashMap<>(), Document.Status.INDEXED, 432L);
+        when(pipeline.process(anyString(), anyString(), any())).thenReturn(new Annotations(doc1.getId(), Pipeline.Type.MITIE, FRENCH));
+        when(indexer.<Document>get(eq("projectName"), Matchers.<List<Pair<String, String>>>any(), eq("content"), eq("language"), eq("rootDocument"))).thenReturn(asList(doc1, null, doc2));
+
+        nlpListener.findNamedEntities(asList(
+                new Message(EXTRACT_NLP).add(INDEX_NAME, "projectName").add(DOC_ID, doc1.getId()).add(R_ID, doc1.getId()),
+                new Message(EXTRACT_NLP).add(INDEX_NAME, "projectName").add(DOC_ID, "unknownId").add(R_ID, "unknownId"),
+                new Message(EXTRACT_NLP).add(INDEX_NAME, "projectName").add(DOC_ID, doc2.getId()).add(R_ID, doc2.getId())));
+
+        verify(indexer, never()).get(anyString(), anyString(), anyString());
+        verify(pipeline).process("content1", doc1.getId(), FRENCH);
+        verify(pipeline).process("content2", doc2.getId(), FRENCH);
+    }
+
+    @Test(expected = IOException.class)
+    public void test_batch_is_not_processed_when_documents_cannot_be_read() throws Exception {
+        when(indexer.<Document>get(eq("projectName"), Matchers.<List<Pair<String, String>>>any(), eq("content"), eq("language"), eq("rootDocument"))).thenThrow(new IOException("timeout"));
+
+        try {
+            nlpListener.findNamedEntities(asList(
+                    new Message(EXTRACT_NLP).add(INDEX_NAME, "projectName").add(DOC_ID, "id1").add(R_ID, "id1"),
+                    new Message(EXTRACT_NLP).add(INDEX_NAME, "projectName").add(DOC_ID, "id2").add(R_ID, "id2")));
+        } finally {
+            verify(pipeline, never()).process(anyString(), anyString(), any());
+        }
+    }
+
+    @Test
+    public void test_large_content_is_processed_by_chunks_with_document_offsets() throws Exception {
+        NlpConsumer chunkingConsumer = new NlpConsumer(pipeline, indexer, null, 1, 12);
+        when(pipeline.initialize(any())).thenReturn(true);
+        when(pipeline.getType()).thenReturn(Pipeline.Type.MITIE);
+        Document doc = new Document(project("prj"), Paths.get("/path/to/doc"), "hello Paris\nhello Lyon", FRENCH,
+                Charset.defaultCharset(), "test/plain", new HashMap<>(), Document.Status.INDEXED, 432L);
+        Annotations firstChunk = new Annotations(doc.getId(), Pipeline.Type.MITIE, FRENCH);
+        firstChunk.add(NlpStage.NER, 6, 11, "LOCATION");
+        Annotations secondChunk = new Annotations(doc.getId(), Pipeline.Type.MITIE, FRENCH);
+        secondChunk.add(NlpStage.NER, 6, 10, "LOCATION");
+        when(pipeline.process("hello Paris\n", doc.getId(), FRENCH)).thenReturn(firstChunk);
+        when(pipeline.process("hello Lyon", doc.getId(), FRENCH)).thenReturn(secondChunk);
+        when(indexer.get("projectName", doc.getId(), "routing")).thenReturn(doc);
+
+        chunkingConsumer.findNamedEntities("projectName", doc.getId(), "routing");
+
+        ArgumentCaptor<List> namedEntities = ArgumentCaptor.forClass(List.class);
+        verify(indexer).bulkAdd(eq("projectName"), eq(Pipeline.Type.MITIE), namedEntities.capture(), eq(doc), any(Runnable.class));
+        assertThat(((List<NamedEntity>) namedEntities.getValue()).stream().map(NamedEntity::getOffset).collect(toList())).containsExactly(6, 18);
+    }
+
+    @Test
+    public void test_message_is_acknowledged_once_its_named_entities_are_written() throws Exception {
+        List<Message> acknowledged = new ArrayList<>();
+        NlpConsumer consumer = new NlpConsumer(pipeline, indexer, null).withAcknowledgement(acknowledged::add);
+        when(pipeline.initialize(any())).thenReturn(true);
+        Document doc = new Document(project("prj"), Paths.get("/path/to/doc"), "content", FRENCH,
+                Charset.defaultCharset(), "test/plain", new HashMap<>(), Document.Status.INDEXED, 432L);
+        when(pipeline.process(anyString(), anyString(), any())).thenReturn(new Annotations(doc.getId(), Pipeline.Type.MITIE, FRENCH));
+        when(indexer.get("projectName", doc.getId(), doc.getId())).thenReturn(doc);
+        ArgumentCaptor<Runnable> onWritten = ArgumentCaptor.forClass(Runnable.class);
+        when(indexer.bulkAdd(eq("projectName"), any(), any(), eq(doc), onWritten.capture())).thenReturn(true);
+        Message message = new Message(EXTRACT_NLP).add(INDEX_NAME, "projectName").add(DOC_ID, doc.getId()).add(R_ID, doc.getId());
+
+        consumer.findNamedEntities(singletonList(message));
+        assertThat(acknowledged).isEmpty();
+
+        onWritten.getValue().run();
+        assertThat(acknowledged).containsExactly(message);
+    }
+
+    @Test
+    public void test_message_is_not_acknowledged_when_named_entities_cannot_be_written() throws Exception {
+        List<Message> acknowledged = new ArrayList<>();
+        NlpConsumer consumer = new NlpConsumer(pipeline, indexer, null).withAcknowledgement(acknowledged::add);
+        when(pipeline.initialize(any())).thenReturn(true);
+        Document doc = new Document(project("prj"), Paths.get("/path/to/doc"), "content", FRENCH,
+                Charset.defaultCharset(), "test/plain", new HashMap<>(), Document.Status.INDEXED, 432L);
+        when(pipeline.process(anyString(), anyString(), any())).thenReturn(new Annotations(doc.getId(), Pipeline.Type.MITIE, FRENCH));
+        when(indexer.get("projectName", doc.getId(), doc.getId())).thenReturn(doc);
+        when(indexer.bulkAdd(eq("projectName"), any(), any(), eq(doc), any(Runnable.class))).thenThrow(new IOException("timeout"));
+
+        consumer.findNamedEntities(singletonList(new Message(EXTRACT_NLP).add(INDEX_NAME, "projectName").add(DOC_ID, doc.getId()).add(R_ID, doc.getId())));
+
+        assertThat(acknowledged).isEmpty();
+    }
+
+    @Test
+    public void test_chunk_end() {
+        assertThat(NlpConsumer.chunkEnd("short", 0, 10)).isEqualTo(5);
+        assertThat(NlpConsumer.chunkEnd("aaaaaaaaaaaaaaaaaa bbbbbbbbbbbbbbbb", 0, 20)).isEqualTo(19);
+        assertThat(NlpConsumer.chunkEnd("aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa", 0, 10)).isEqualTo(10);
+        assertThat(NlpConsumer.chunkEnd("aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa", 25, 10)).isEqualTo(31);
+    }
 }
@@ -48,16 +48,39 @@ public final class DatashareCli {
         DatashareCliOptions.parallelism(parser);
         DatashareCliOptions.fileParserParallelism(parser);
         DatashareCliOptions.nlpParallelism(parser);
+        DatashareCliOptions.nlpBatchSize(parser);
+        DatashareCliOptions.nlpChunkSize(parser);
         DatashareCliOptions.followSymlinks(parser);
 
         DatashareCliOptions.clusterName(parser);
         DatashareCliOptions.projectName(parser);
         DatashareCliOptions.esHost(parser);
         DatashareCliOptions.queueName(parser);
+        DatashareCliOptions.bulkActions(parser);
+        DatashareCliOptions.bulkSize(parser);
+        DatashareCliOptions.bulkFlushInterval(parser);
+        DatashareCliOptions.bulkConcurrentRequests(parser);
+        DatashareCliOptions.ingestionMode(parser);
+        DatashareCliOptions.indexShards(parser);
+        DatashareCliOptions.indexReplicas(parser);
+        DatashareCliOptions.indexCodec(parser);
+        DatashareCliOptions.expectedDocuments(parser);
+        DatashareCliOptions.refreshInterval(parser);
+        DatashareCliOptions.scrollSlices(parser);
 
         DatashareCliOptions.cors(parser);
         DatashareCliOptions.noweb(parser);
         DatashareCliOptions.messageBusAddress(parser);
+        DatashareCliOptions.messageBusBatchSize(parser);
+        DatashareCliOptions.messageBusQueueCapacity(parser);
+        DatashareCliOptions.messageBusCodec(parser);
+        DatashareCliOptions.messageBusMemory(parser);
+        DatashareCliOptions.messageBusStreams(parser);
+        DatashareCliOptions.messageBusStreamMaxLength(parser);
+        DatashareCliOptions.nlpConsumerName(parser);
+        DatashareCliOptions.nlpClaimTimeout(parser);
+        DatashareCliOptions.nlpQueueCapacity(parser);
+        DatashareCliOptions.nlpModelsMemoryBudget(parser);
         DatashareCliOptions.redisAddress(parser);
 
         DatashareCliOptions.oauthSecret(parser);
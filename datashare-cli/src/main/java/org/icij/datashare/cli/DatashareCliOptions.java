@@ -5,6 +5,7 @@ import joptsimple.OptionParser;
 import joptsimple.OptionSpec;
 import joptsimple.OptionSpecBuilder;
 import org.icij.datashare.Mode;
+import org.icij.datashare.com.redis.RedisBatchPublisher;
 import org.icij.datashare.text.nlp.Pipeline;
 import org.icij.extract.ScannerVisitor;
 
@@ -13,6 +14,17 @@ import java.util.Arrays;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
+import static org.icij.datashare.com.MessageCodec.CODEC_OPT;
+import static org.icij.datashare.com.memory.MemoryPublisher.MEMORY_BUS_OPT;
+import static org.icij.datashare.com.redis.RedisBatchPublisher.BATCH_SIZE_OPT;
+import static org.icij.datashare.com.redis.RedisStreamPublisher.STREAMS_OPT;
+import static org.icij.datashare.com.redis.RedisStreamPublisher.STREAM_MAX_LENGTH_OPT;
+import static org.icij.datashare.text.nlp.NlpForwarder.CLAIM_TIMEOUT_OPT;
+import static org.icij.datashare.text.nlp.NlpForwarder.CONSUMER_NAME_OPT;
+import static org.icij.datashare.text.nlp.NlpForwarder.QUEUE_CAPACITY_OPT;
+import static org.icij.datashare.text.nlp.AbstractModels.MEMORY_BUDGET_OPT;
+import static org.icij.datashare.text.nlp.NlpApp.NLP_BATCH_SIZE_OPT;
+import static org.icij.datashare.text.nlp.NlpApp.NLP_CHUNK_SIZE_OPT;
 import static org.icij.datashare.text.nlp.NlpApp.NLP_PARALLELISM_OPT;
 
 
@@ -78,6 +90,72 @@ final class DatashareCliOptions {
                 .defaultsTo(new File("/home/datashare/data"));
     }
 
+    static OptionSpec<Integer> messageBusBatchSize(OptionParser parser) {
+        return parser.acceptsAll(
+                singletonList(BATCH_SIZE_OPT), "Number of messages sent at once to the message bus, greater than 1 enables asynchronous batch publishing (default 1)")
+                .withRequiredArg()
+                .ofType(Integer.class);
+    }
+
+    static OptionSpec<Integer> messageBusQueueCapacity(OptionParser parser) {
+        return parser.acceptsAll(
+                singletonList(RedisBatchPublisher.QUEUE_CAPACITY_OPT), "Maximum number of messages waiting to be sent in batch to the message bus, publishers wait beyond (default 10000)")
+                .withRequiredArg()
+                .ofType(Integer.class);
+    }
+
+    static OptionSpec<String> messageBusCodec(OptionParser parser) {
+        return parser.acceptsAll(
+                singletonList(CODEC_OPT), "Encoding of the messages published on the message bus : json or binary (default json)")
+                .withRequiredArg()
+                .ofType(String.class);
+    }
+
+    static OptionSpecBuilder messageBusMemory(OptionParser parser) {
+        return parser.acceptsAll(singletonList(MEMORY_BUS_OPT),
+                "Send the NLP messages in memory to the NLP pipelines of the same process instead of using redis (default false)");
+    }
+
+    static OptionSpecBuilder messageBusStreams(OptionParser parser) {
+        return parser.acceptsAll(singletonList(STREAMS_OPT),
+                "Use redis streams with a consumer group per NLP pipeline instead of pub/sub (needs redis 5, default false)");
+    }
+
+    static OptionSpec<Long> messageBusStreamMaxLength(OptionParser parser) {
+        return parser.acceptsAll(
+                singletonList(STREAM_MAX_LENGTH_OPT), "Approximate maximum number of messages kept in redis streams (default 0, no limit)")
+                .withRequiredArg()
+                .ofType(Long.class);
+    }
+
+    static OptionSpec<String> nlpConsumerName(OptionParser parser) {
+        return parser.acceptsAll(
+                singletonList(CONSUMER_NAME_OPT), "Name of the NLP consumer in the stream consumer group (default pid@hostname)")
+                .withRequiredArg()
+                .ofType(String.class);
+    }
+
+    static OptionSpec<Integer> nlpQueueCapacity(OptionParser parser) {
+        return parser.acceptsAll(
+                singletonList(QUEUE_CAPACITY_OPT), "Maximum number of NLP messages waiting in memory, the others are left in redis (default 10000)")
+                .withRequiredArg()
+                .ofType(Integer.class);
+    }
+
+    static OptionSpec<Long> nlpModelsMemoryBudget(OptionParser parser) {
+        return parser.acceptsAll(
+                singletonList(MEMORY_BUDGET_OPT), "Megabytes of NLP models kept loaded, the least recently used are unloaded beyond (default unlimited)")
+                .withRequiredArg()
+                .ofType(Long.class);
+    }
+
+    static OptionSpec<Long> nlpClaimTimeout(OptionParser parser) {
+        return parser.acceptsAll(
+                singletonList(CLAIM_TIMEOUT_OPT), "Milliseconds after which messages pending in another NLP consumer are claimed (default 600000)")
+                .withRequiredArg()
+                .ofType(Long.class);
+    }
+
     static OptionSpec<String> messageBusAddress(OptionParser parser) {
         return parser.acceptsAll(
                 singletonList(MESSAGE_BUS_OPT),
@@ -112,6 +190,22 @@ final class DatashareCliOptions {
                 .defaultsTo(DEFAULT_NLP_PARALLELISM);
     }
 
+    static OptionSpec<Integer> nlpBatchSize(OptionParser parser) {
+        return parser.acceptsAll(
+                singletonList(NLP_BATCH_SIZE_OPT),
+                "Number of queued documents fetched at once by each NLP thread (default 1).")
+                .withRequiredArg()
+                .ofType( Integer.class );
+    }
+
+    static OptionSpec<Integer> nlpChunkSize(OptionParser parser) {
+        return parser.acceptsAll(
+                singletonList(NLP_CHUNK_SIZE_OPT),
+                "Maximum number of characters processed at once by the NLP pipeline, larger contents are split (default 1000000).")
+                .withRequiredArg()
+                .ofType( Integer.class );
+    }
+
     static OptionSpecBuilder enableOcr(OptionParser parser) {
         return parser.acceptsAll(
                 asList("enableOcr", "o"),
@@ -146,6 +240,81 @@ final class DatashareCliOptions {
                 .defaultsTo("http://elasticsearch:9200");
     }
 
+    static OptionSpec<Integer> bulkActions(OptionParser parser) {
+        return parser.acceptsAll(
+                singletonList("bulkActions"), "Number of documents buffered by the indexer before a bulk request is sent (1 disables bulk indexing)")
+                .withRequiredArg()
+                .ofType(Integer.class);
+    }
+
+    static OptionSpec<String> bulkSize(OptionParser parser) {
+        return parser.acceptsAll(
+                singletonList("bulkSize"), "Size of buffered documents triggering a bulk request (default 5mb)")
+                .withRequiredArg()
+                .ofType(String.class);
+    }
+
+    static OptionSpec<String> bulkFlushInterval(OptionParser parser) {
+        return parser.acceptsAll(
+                singletonList("bulkFlushInterval"), "Maximum age of buffered documents before a bulk request is sent (default 5s)")
+                .withRequiredArg()
+                .ofType(String.class);
+    }
+
+    static OptionSpec<Integer> bulkConcurrentRequests(OptionParser parser) {
+        return parser.acceptsAll(
+                singletonList("bulkConcurrentRequests"), "Maximum number of in-flight bulk requests before extraction threads are blocked (default 1)")
+                .withRequiredArg()
+                .ofType(Integer.class);
+    }
+
+    static OptionSpec<Integer> indexShards(OptionParser parser) {
+        return parser.acceptsAll(
+                singletonList("indexShards"), "Number of primary shards of created indices (default 5)")
+                .withRequiredArg()
+                .ofType(Integer.class);
+    }
+
+    static OptionSpec<Integer> indexReplicas(OptionParser parser) {
+        return parser.acceptsAll(
+                singletonList("indexReplicas"), "Number of replicas of created indices (default 1)")
+                .withRequiredArg()
+                .ofType(Integer.class);
+    }
+
+    static OptionSpec<String> indexCodec(OptionParser parser) {
+        return parser.acceptsAll(
+                singletonList("indexCodec"), "Lucene codec of created indices (ex: best_compression)")
+                .withRequiredArg()
+                .ofType(String.class);
+    }
+
+    static OptionSpec<Long> expectedDocuments(OptionParser parser) {
+        return parser.acceptsAll(
+                singletonList("expectedDocuments"), "Expected number of documents, used to size the shard count of created indices")
+                .withRequiredArg()
+                .ofType(Long.class);
+    }
+
+    static OptionSpecBuilder ingestionMode(OptionParser parser) {
+        return parser.acceptsAll(singletonList("ingestionMode"),
+                "Disable index refresh and replicas while indexing, then restore them and force-merge (default false)");
+    }
+
+    static OptionSpec<String> refreshInterval(OptionParser parser) {
+        return parser.acceptsAll(
+                singletonList("refreshInterval"), "Index refresh interval restored after ingestion when the index has none (default 1s)")
+                .withRequiredArg()
+                .ofType(String.class);
+    }
+
+    static OptionSpec<Integer> scrollSlices(OptionParser parser) {
+        return parser.acceptsAll(
+                singletonList("scrollSlices"), "Number of parallel scroll slices used to walk the index when resuming (default 1)")
+                .withRequiredArg()
+                .ofType(Integer.class);
+    }
+
     static OptionSpec<String> projectName(OptionParser parser) {
         return parser.acceptsAll(
                 asList("projectName", "n"), "Project name")
@@ -1,16 +1,29 @@
 package org.icij.datashare.text.indexing.elasticsearch;
 
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.admin.indices.create.CreateIndexRequest;
+import org.elasticsearch.action.admin.indices.forcemerge.ForceMergeRequest;
 import org.elasticsearch.action.admin.indices.get.GetIndexRequest;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.elasticsearch.action.bulk.BackoffPolicy;
 import org.elasticsearch.action.support.WriteRequest;
+import org.elasticsearch.client.Response;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentHelper;
 import org.icij.datashare.PropertiesProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
 
 import static com.google.common.io.ByteStreams.toByteArray;
 import static org.apache.http.HttpHost.create;
@@ -20,6 +33,11 @@ public class ElasticsearchConfiguration {
     static final String MAPPING_RESOURCE_NAME = "datashare_index_mappings.json";
     static final String SETTINGS_RESOURCE_NAME = "datashare_index_settings.json";
     static final int INDEX_MAX_RESULT_WINDOW = 100000;
+    private static final String REFRESH_INTERVAL_SETTING = "index.refresh_interval";
+    private static final String REPLICAS_SETTING = "index.number_of_replicas";
+    private static final String INGESTION_REFRESH_INTERVAL = "-1";
+    private static final int INGESTION_REPLICAS = 0;
+    private static final Map<String, Ingestion> ingestions = new HashMap<>();
     static Logger LOGGER = LoggerFactory.getLogger(ElasticsearchConfiguration.class);
     public static final String VERSION = "6.1.0";
 
@@ -33,6 +51,19 @@ public class ElasticsearchConfiguration {
     private static final String INDEX_JOIN_FIELD_NAME_PROP = "indexJoinFieldName";
     private static final String INDEX_TYPE_FIELD_NAME_PROP = "indexTypeFieldName";
     private static final String CLUSTER_PROP = "clusterName";
+    private static final String BULK_ACTIONS_PROP = "bulkActions";
+    private static final String BULK_SIZE_PROP = "bulkSize";
+    private static final String BULK_FLUSH_INTERVAL_PROP = "bulkFlushInterval";
+    private static final String BULK_CONCURRENT_REQUESTS_PROP = "bulkConcurrentRequests";
+    private static final String BULK_BACKOFF_DELAY_PROP = "bulkBackoffDelay";
+    private static final String BULK_BACKOFF_RETRIES_PROP = "bulkBackoffRetries";
+    private static final String INGESTION_MODE_PROP = "ingestionMode";
+    private static final String REFRESH_INTERVAL_PROP = "refreshInterval";
+    static final String INDEX_SHARDS_PROP = "indexShards";
+    static final String INDEX_REPLICAS_PROP = "indexReplicas";
+    static final String INDEX_CODEC_PROP = "indexCodec";
+    static final String INDEX_DOCUMENTS_PER_SHARD_PROP = "indexDocumentsPerShard";
+    static final String EXPECTED_DOCUMENTS_PROP = "expectedDocuments";
 
     private static final String DEFAULT_ADDRESS = "http://localhost:9200";
     private static final String ES_CLUSTER_NAME = "datashare";
@@ -44,19 +75,49 @@ public class ElasticsearchConfiguration {
     static final String DEFAULT_PARENT_DOC_FIELD = "parentDocument";
 
     private static final String DEFAULT_DOC_TYPE_FIELD = "type";
+    private static final String DEFAULT_BULK_ACTIONS = "1";
+    private static final String DEFAULT_BULK_SIZE = "5mb";
+    private static final String DEFAULT_BULK_FLUSH_INTERVAL = "5s";
+    private static final String DEFAULT_BULK_CONCURRENT_REQUESTS = "1";
+    private static final String DEFAULT_BULK_BACKOFF_DELAY = "50ms";
+    private static final String DEFAULT_BULK_BACKOFF_RETRIES = "8";
+    private static final String DEFAULT_REFRESH_INTERVAL = "1s";
+    private static final String DEFAULT_SHARDS = "5"; // elasticsearch 6 default
+    private static final String DEFAULT_REPLICAS = "1";
+    private static final String DEFAULT_DOCUMENTS_PER_SHARD = "5000000";
 
     final String indexType;
     final String indexJoinField;
     final String docTypeField;
+    final int bulkActions;
+    final ByteSizeValue bulkSize;
+    final TimeValue bulkFlushInterval;
+    final int bulkConcurrentRequests;
+    final TimeValue bulkBackoffDelay;
+    final int bulkBackoffRetries;
+    final boolean ingestionMode;
+    final String refreshInterval;
     WriteRequest.RefreshPolicy refreshPolicy = WriteRequest.RefreshPolicy.NONE;
 
-    final int shards = 1;
-    final int replicas = 1;
+    final int shards;
+    final int replicas;
+    private final PropertiesProvider propertiesProvider;
 
     ElasticsearchConfiguration(PropertiesProvider propertiesProvider) {
+        this.propertiesProvider = propertiesProvider;
         indexType = propertiesProvider.get(INDEX_TYPE_PROP).orElse(DEFAULT_INDEX_TYPE);
         indexJoinField = propertiesProvider.get(INDEX_JOIN_FIELD_NAME_PROP).orElse(DEFAULT_INDEX_JOIN_FIELD);
         docTypeField = propertiesProvider.get(INDEX_TYPE_FIELD_NAME_PROP).orElse(DEFAULT_DOC_TYPE_FIELD);
+        bulkActions = Integer.parseInt(propertiesProvider.get(BULK_ACTIONS_PROP).orElse(DEFAULT_BULK_ACTIONS));
+        bulkSize = ByteSizeValue.parseBytesSizeValue(propertiesProvider.get(BULK_SIZE_PROP).orElse(DEFAULT_BULK_SIZE), BULK_SIZE_PROP);
+        bulkFlushInterval = TimeValue.parseTimeValue(propertiesProvider.get(BULK_FLUSH_INTERVAL_PROP).orElse(DEFAULT_BULK_FLUSH_INTERVAL), BULK_FLUSH_INTERVAL_PROP);
+        bulkConcurrentRequests = Integer.parseInt(propertiesProvider.get(BULK_CONCURRENT_REQUESTS_PROP).orElse(DEFAULT_BULK_CONCURRENT_REQUESTS));
+        bulkBackoffDelay = TimeValue.parseTimeValue(propertiesProvider.get(BULK_BACKOFF_DELAY_PROP).orElse(DEFAULT_BULK_BACKOFF_DELAY), BULK_BACKOFF_DELAY_PROP);
+        bulkBackoffRetries = Integer.parseInt(propertiesProvider.get(BULK_BACKOFF_RETRIES_PROP).orElse(DEFAULT_BULK_BACKOFF_RETRIES));
+        ingestionMode = Boolean.parseBoolean(propertiesProvider.get(INGESTION_MODE_PROP).orElse("false"));
+        refreshInterval = propertiesProvider.get(REFRESH_INTERVAL_PROP).orElse(DEFAULT_REFRESH_INTERVAL);
+        shards = Integer.parseInt(propertiesProvider.get(INDEX_SHARDS_PROP).orElse(DEFAULT_SHARDS));
+        replicas = Integer.parseInt(propertiesProvider.get(INDEX_REPLICAS_PROP).orElse(DEFAULT_REPLICAS));
     }
 
     public static RestHighLevelClient createESClient(final PropertiesProvider propertiesProvider) {
@@ -74,13 +135,19 @@ public class ElasticsearchConfiguration {
     }
 
     public static boolean createIndex(RestHighLevelClient client, String indexName, String indexType) {
+        return createIndex(client, indexName, indexType, Settings.EMPTY);
+    }
+
+    static boolean createIndex(RestHighLevelClient client, String indexName, String indexType, Settings indexSettings) {
         GetIndexRequest request = new GetIndexRequest();
         request.indices(indexName);
         try {
             if (!client.indices().exists(request)) {
-                LOGGER.info("index {} does not exist, creating one", indexName);
+                LOGGER.info("index {} does not exist, creating one with {}", indexName, indexSettings);
                 CreateIndexRequest createReq = new CreateIndexRequest(indexName);
-                createReq.settings(getResourceContent(SETTINGS_RESOURCE_NAME), JSON);
+                createReq.settings(Settings.builder()
+                        .loadFromSource(getResourceContent(SETTINGS_RESOURCE_NAME), JSON)
+                        .put(indexSettings));
                 createReq.mapping(indexType, getResourceContent(MAPPING_RESOURCE_NAME), JSON);
                 client.indices().create(createReq);
                 return true;
@@ -91,11 +158,106 @@ public class ElasticsearchConfiguration {
         return false;
     }
 
+    /**
+     * disables refresh and replication on the index while documents are bulk loaded.
+     *
+     * the ingestions of an index are counted : overlapping ingestions keep the settings of the index saved
+     * by the first one, and they are restored by the last one. Settings that already are the ingestion values
+     * (e.g. left by another process) are not saved, the configured values are restored instead.
+     */
+    void startIngestion(RestHighLevelClient client, String indexName) throws IOException {
+        synchronized (ingestions) {
+            Ingestion ingestion = ingestions.get(indexName);
+            if (ingestion != null) {
+                ingestion.count++;
+                LOGGER.info("ingestion on index {} already started ({} ingestions)", indexName, ingestion.count);
+                return;
+            }
+            Settings previous = getIngestionSettings(client, indexName);
+            LOGGER.info("starting ingestion on index {}: disabling refresh and replicas (was {})", indexName, previous);
+            client.indices().putSettings(new UpdateSettingsRequest(indexName).settings(Settings.builder()
+                    .put(REFRESH_INTERVAL_SETTING, INGESTION_REFRESH_INTERVAL)
+                    .put(REPLICAS_SETTING, INGESTION_REPLICAS)));
+            ingestions.put(indexName, new Ingestion(previous));
+        }
+    }
+
+    /**
+     * when it is the last ingestion of the index, restores the refresh interval and replicas that the index had
+     * before ingestion, then merges the segments written during ingestion. The merge runs in background,
+     * its failure is only logged.
+     */
+    void endIngestion(RestHighLevelClient client, String indexName) throws IOException {
+        Settings previous;
+        synchronized (ingestions) {
+            Ingestion ingestion = ingestions.get(indexName);
+            if (ingestion == null) {
+                return;
+            }
+            if (--ingestion.count > 0) {
+                LOGGER.info("ingestion on index {} ended, {} remaining", indexName, ingestion.count);
+                return;
+            }
+            ingestions.remove(indexName);
+            previous = ingestion.previous;
+            LOGGER.info("ending ingestion on index {}: restoring {}", indexName, previous);
+            client.indices().putSettings(new UpdateSettingsRequest(indexName).settings(previous));
+        }
+        client.indices().forceMergeAsync(new ForceMergeRequest(indexName), ActionListener.wrap(
+                response -> LOGGER.info("index {} merged", indexName),
+                failure -> LOGGER.error("cannot merge index " + indexName, failure)));
+    }
+
+    /**
+     * the index settings are read with the low level client, the high level client has no get settings in 6.3.
+     * The configured values are used for the settings that are not set on the index.
+     */
+    private Settings getIngestionSettings(RestHighLevelClient client, String indexName) throws IOException {
+        Response response = client.getLowLevelClient().performRequest("GET",
+                indexName + "/_settings/" + REFRESH_INTERVAL_SETTING + "," + REPLICAS_SETTING,
+                new HashMap<String, String>() {{ put("flat_settings", "true"); }});
+        Map<String, Object> indices;
+        try (InputStream content = response.getEntity().getContent()) {
+            indices = XContentHelper.convertToMap(JSON.xContent(), content, false);
+        }
+        Map<String, Object> settings = indices.values().stream().findFirst()
+                .map(index -> (Map<String, Object>) ((Map<String, Object>) index).get("settings"))
+                .orElse(new HashMap<>());
+        String indexRefreshInterval = String.valueOf(settings.getOrDefault(REFRESH_INTERVAL_SETTING, refreshInterval));
+        String indexReplicas = String.valueOf(settings.getOrDefault(REPLICAS_SETTING, replicas));
+        if (INGESTION_REFRESH_INTERVAL.equals(indexRefreshInterval) && String.valueOf(INGESTION_REPLICAS).equals(indexReplicas)) {
+            LOGGER.warn("index {} is already in ingestion mode, the configured settings will be restored", indexName);
+            indexRefreshInterval = refreshInterval;
+            indexReplicas = String.valueOf(replicas);
+        }
+        return Settings.builder()
+                .put(REFRESH_INTERVAL_SETTING, indexRefreshInterval)
+                .put(REPLICAS_SETTING, indexReplicas)
+                .build();
+    }
+
+    private static class Ingestion {
+        private final Settings previous;
+        private int count = 1;
+
+        Ingestion(Settings previous) {
+            this.previous = previous;
+        }
+    }
+
     ElasticsearchConfiguration withRefresh(WriteRequest.RefreshPolicy refreshPolicy) {
         this.refreshPolicy = refreshPolicy;
         return this;
     }
 
+    boolean isBulkEnabled() {
+        return bulkActions > 1;
+    }
+
+    BackoffPolicy bulkBackoffPolicy() {
+        return BackoffPolicy.exponentialBackoff(bulkBackoffDelay, bulkBackoffRetries);
+    }
+
     @Override
     public String toString() {
         return "cfg{" +
@@ -104,15 +266,44 @@ public class ElasticsearchConfiguration {
                 ", docTypeField='" + docTypeField + '\'' +
                 ", shards=" + shards +
                 ", replicas=" + replicas +
+                ", bulkActions=" + bulkActions +
+                ", bulkSize=" + bulkSize +
+                ", bulkFlushInterval=" + bulkFlushInterval +
+                ", bulkConcurrentRequests=" + bulkConcurrentRequests +
+                ", ingestionMode=" + ingestionMode +
+                ", refreshInterval='" + refreshInterval + '\'' +
                 '}';
     }
 
-    Settings getIndexSettings() {
-        return Settings.builder()
-                .put("index.number_of_shards",   shards)
-                .put("index.number_of_replicas", replicas)
-                .put("index.max_result_window",  INDEX_MAX_RESULT_WINDOW)
-                .build();
+    Settings getIndexSettings(String indexName) {
+        return getIndexSettings(indexName, new HashMap<>());
+    }
+
+    /**
+     * index settings of a project. Each value is taken from the given options (i.e. the create request),
+     * then from the "&lt;indexName&gt;.&lt;property&gt;" property, then from the global property.
+     *
+     * When no shard count is given for the project, it is sized from the expectedDocuments hint.
+     */
+    Settings getIndexSettings(String indexName, Map<String, String> options) {
+        Function<String, Optional<String>> projectSetting = name -> Optional.ofNullable(options.get(name))
+                .map(Optional::of).orElseGet(() -> propertiesProvider.get(indexName + "." + name));
+        Function<String, Optional<String>> setting = name -> projectSetting.apply(name)
+                .map(Optional::of).orElseGet(() -> propertiesProvider.get(name));
+
+        long documentsPerShard = Long.parseLong(setting.apply(INDEX_DOCUMENTS_PER_SHARD_PROP).orElse(DEFAULT_DOCUMENTS_PER_SHARD));
+        int indexShards = projectSetting.apply(INDEX_SHARDS_PROP).map(Integer::parseInt).orElseGet(() ->
+                setting.apply(EXPECTED_DOCUMENTS_PROP).map(Long::parseLong)
+                        .map(n -> (int) Math.max(1, (n + documentsPerShard - 1) / documentsPerShard))
+                        .orElse(shards));
+        int indexReplicas = setting.apply(INDEX_REPLICAS_PROP).map(Integer::parseInt).orElse(replicas);
+
+        Settings.Builder builder = Settings.builder()
+                .put("index.number_of_shards",   indexShards)
+                .put("index.number_of_replicas", indexReplicas)
+                .put("index.max_result_window",  INDEX_MAX_RESULT_WINDOW);
+        setting.apply(INDEX_CODEC_PROP).ifPresent(codec -> builder.put("index.codec", codec));
+        return builder.build();
     }
 
     private static String getResourceContent(String resourceName) {
@@ -21,6 +21,6 @@ public class ElasticsearchExtractedStreamer implements ExtractedStreamer {
 
     @Override
     public Stream<Path> extractedDocuments() throws IOException {
-        return indexer.search(indexName, Document.class).withSource("path").execute().map(d -> ((Document)d).getPath());
+        return indexer.search(indexName, Document.class).withSource("path").searchAfter().map(d -> ((Document)d).getPath());
     }
 }
@@ -3,11 +3,17 @@ package org.icij.datashare.text.indexing.elasticsearch;
 import com.google.inject.Inject;
 import org.apache.http.entity.ContentType;
 import org.apache.http.nio.entity.NStringEntity;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
 import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.get.GetRequest;
 import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.ClearScrollRequest;
 import org.elasticsearch.action.search.SearchRequest;
@@ -17,7 +23,11 @@ import org.elasticsearch.action.support.WriteRequest;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.client.Response;
 import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.ConstantScoreQueryBuilder;
 import org.elasticsearch.index.query.TermsQueryBuilder;
@@ -26,25 +36,48 @@ import org.elasticsearch.script.Script;
 import org.elasticsearch.script.ScriptType;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
+import org.elasticsearch.search.slice.SliceBuilder;
+import org.apache.lucene.util.BytesRef;
 import org.icij.datashare.Entity;
 import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.function.Pair;
 import org.icij.datashare.json.JsonObjectMapper;
 import org.icij.datashare.text.Document;
 import org.icij.datashare.text.NamedEntity;
 import org.icij.datashare.text.indexing.Indexer;
 import org.icij.datashare.text.nlp.Pipeline;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
+import static java.util.Collections.emptyIterator;
+import static java.util.Collections.singletonList;
 import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.toList;
-import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
 import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
 import static org.elasticsearch.index.query.QueryBuilders.matchQuery;
 import static org.icij.datashare.json.JsonObjectMapper.*;
@@ -52,44 +85,80 @@ import static org.icij.datashare.text.indexing.elasticsearch.ElasticsearchConfig
 
 
 public class ElasticsearchIndexer implements Indexer {
+    static final String NER_DONE_SCRIPT = "ctx._source.status = params.status; " +
+            "if (!ctx._source.nerTags.contains(params.nerTag)) ctx._source.nerTags.add(params.nerTag);";
     private final RestHighLevelClient client;
     private final ElasticsearchConfiguration esCfg;
+    private final RetryingBulkSender bulkSender;
+    private final BulkProcessor namedEntitiesWriter;
+    private final Map<DocWriteRequest<?>, PendingWrites> pendingWrites = Collections.synchronizedMap(new IdentityHashMap<>());
+    private final ExecutorService writeCallbacks = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "named-entities-written");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     @Inject
     public ElasticsearchIndexer(final RestHighLevelClient esClient, final PropertiesProvider propertiesProvider) {
         this.client = esClient;
         esCfg = new ElasticsearchConfiguration(propertiesProvider);
+        bulkSender = new RetryingBulkSender(esClient, esCfg.bulkBackoffPolicy());
+        namedEntitiesWriter = esCfg.isBulkEnabled() ? createNamedEntitiesWriter() : null;
         LOGGER.info("indexer defined with {}", esCfg);
     }
 
     @Override
     public void close() throws IOException {
         LOGGER.info("Closing Elasticsearch connections");
+        if (namedEntitiesWriter != null) {
+            try {
+                if (!namedEntitiesWriter.awaitClose(1, TimeUnit.MINUTES)) {
+                    LOGGER.error("named entities writer closed with pending bulk requests");
+                }
+                writeCallbacks.shutdown();
+                if (!writeCallbacks.awaitTermination(1, TimeUnit.MINUTES)) {
+                    LOGGER.error("named entities writer closed with pending callbacks");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        bulkSender.close();
         client.close();
         LOGGER.info("Elasticsearch connections closed");
     }
 
     @Override
     public boolean bulkAdd(final String indexName, Pipeline.Type nerType, List<NamedEntity> namedEntities, Document parent) throws IOException {
+        return bulkAdd(indexName, nerType, namedEntities, parent, () -> {});
+    }
+
+    @Override
+    public boolean bulkAdd(final String indexName, Pipeline.Type nerType, List<NamedEntity> namedEntities, Document parent, Runnable onWritten) throws IOException {
         BulkRequest bulkRequest = new BulkRequest();
 
         String routing = ofNullable(parent.getRootDocument()).orElse(parent.getId());
-        bulkRequest.add(new UpdateRequest(indexName, esCfg.indexType, parent.getId()).doc(
-                jsonBuilder().startObject()
-                        .field("status", Document.Status.DONE)
-                        .endObject()).routing(routing));
-        bulkRequest.add(new UpdateRequest(indexName, esCfg.indexType, parent.getId())
-                .script(new Script(ScriptType.INLINE, "painless",
-                        "if (!ctx._source.nerTags.contains(params.nerTag)) ctx._source.nerTags.add(params.nerTag);",
-                        new HashMap<String, Object>() {{put("nerTag", nerType.toString());}})).routing(routing));
-
         for (Entity child : namedEntities) {
             bulkRequest.add(createIndexRequest(indexName, JsonObjectMapper.getType(child), child.getId(),
-                            getJson(child), parent.getId(), routing));
+                            child, parent.getId(), routing));
+        }
+        bulkRequest.add(new UpdateRequest(indexName, esCfg.indexType, parent.getId()) // after the entities for the deferred writes
+                .script(new Script(ScriptType.INLINE, "painless", NER_DONE_SCRIPT,
+                        new HashMap<String, Object>() {{
+                            put("status", Document.Status.DONE.toString());
+                            put("nerTag", nerType.toString());
+                        }})).routing(routing));
+        if (namedEntitiesWriter != null) {
+            PendingWrites pending = new PendingWrites(bulkRequest.numberOfActions(), onWritten);
+            for (DocWriteRequest<?> request : bulkRequest.requests()) {
+                pendingWrites.put(request, pending);
+                namedEntitiesWriter.add(request);
+            }
+            return true;
         }
         bulkRequest.setRefreshPolicy(esCfg.refreshPolicy);
 
-        BulkResponse bulkResponse = client.bulk(bulkRequest);
+        BulkResponse bulkResponse = bulkSender.send(bulkRequest);
         if (bulkResponse.hasFailures()) {
             for (BulkItemResponse resp : bulkResponse.getItems()) {
                 if (resp.isFailed()) {
@@ -98,17 +167,82 @@ public class ElasticsearchIndexer implements Indexer {
             }
             return false;
         }
+        onWritten.run();
         return true;
     }
 
+    /**
+     * coalesces the named entities and document updates of many documents into bulks sized in bytes,
+     * flushed when bulkSize is reached or every bulkFlushInterval.
+     */
+    private BulkProcessor createNamedEntitiesWriter() {
+        return BulkProcessor.builder(bulkSender, new BulkProcessor.Listener() {
+            @Override
+            public void beforeBulk(long executionId, BulkRequest request) {}
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+                LOGGER.info("named entities bulk #{} of {} action(s) written in {}ms", executionId, request.numberOfActions(), response.getTook().millis());
+                for (BulkItemResponse item : response.getItems()) {
+                    if (item.isFailed()) {
+                        LOGGER.error("bulk add failed for {} : {}", item.getId(), item.getFailureMessage());
+                    }
+                    written(request.requests().get(item.getItemId()), !item.isFailed());
+                }
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+                LOGGER.error("named entities bulk #" + executionId + " of " + request.numberOfActions() + " action(s) failed", failure);
+                request.requests().forEach(r -> written(r, false));
+            }
+        }).setBulkActions(-1)
+          .setBulkSize(esCfg.bulkSize)
+          .setFlushInterval(esCfg.bulkFlushInterval)
+          .setConcurrentRequests(esCfg.bulkConcurrentRequests)
+          .setBackoffPolicy(esCfg.bulkBackoffPolicy())
+          .build();
+    }
+
+    private void written(DocWriteRequest<?> request, boolean succeeded) {
+        PendingWrites pending = pendingWrites.remove(request);
+        if (pending != null && pending.written(succeeded)) {
+            writeCallbacks.execute(pending.onWritten); // not on the client I/O thread
+        }
+    }
+
+    /**
+     * the writes of a document, that can be split between bulks
+     */
+    private static class PendingWrites {
+        private final AtomicInteger remaining;
+        private final Runnable onWritten;
+        private volatile boolean failed = false;
+
+        PendingWrites(int writes, Runnable onWritten) {
+            this.remaining = new AtomicInteger(writes);
+            this.onWritten = onWritten;
+        }
+
+        /**
+         * @return true when the last write of the document has been made and all the writes succeeded
+         */
+        boolean written(boolean succeeded) {
+            if (!succeeded) {
+                failed = true;
+            }
+            return remaining.decrementAndGet() == 0 && !failed;
+        }
+    }
+
     @Override
     public <T extends Entity> boolean bulkUpdate(String indexName, List<? extends Entity> entities) throws IOException {
         BulkRequest bulkRequest = new BulkRequest();
-        entities.stream().map(e -> createUpdateRequest(indexName, getType(e), e.getId(), getJson(e), getParent(e), getRoot(e))).
+        entities.stream().map(e -> createUpdateRequest(indexName, getType(e), e.getId(), e, getParent(e), getRoot(e))).
                 forEach(bulkRequest::add);
         bulkRequest.setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE);
 
-        BulkResponse bulkResponse = client.bulk(bulkRequest);
+        BulkResponse bulkResponse = bulkSender.send(bulkRequest);
         if (bulkResponse.hasFailures()) {
             for (BulkItemResponse resp : bulkResponse.getItems()) {
                 if (resp.isFailed()) {
@@ -124,7 +258,7 @@ public class ElasticsearchIndexer implements Indexer {
     public <T extends Entity> void add(final String indexName, T obj) throws IOException {
         String type = JsonObjectMapper.getType(obj);
         String id = obj.getId();
-        client.index( createIndexRequest(indexName, type, id, getJson(obj), getParent(obj), getRoot(obj)).
+        client.index( createIndexRequest(indexName, type, id, obj, getParent(obj), getRoot(obj)).
                 setRefreshPolicy(esCfg.refreshPolicy) );
     }
 
@@ -132,39 +266,51 @@ public class ElasticsearchIndexer implements Indexer {
     public <T extends Entity> void update(String indexName, T obj) throws IOException {
         String type = JsonObjectMapper.getType(obj);
         String id = obj.getId();
-        client.update( createUpdateRequest(indexName, type, id, getJson(obj), getParent(obj), getRoot(obj)).
+        client.update( createUpdateRequest(indexName, type, id, obj, getParent(obj), getRoot(obj)).
                 setRefreshPolicy(esCfg.refreshPolicy) );
     }
 
-    private IndexRequest createIndexRequest(String index, String type, String id, Map<String, Object> json, String parent, String root) {
+    private <T extends Entity> IndexRequest createIndexRequest(String index, String type, String id, T obj, String parent, String root) {
         IndexRequest req = new IndexRequest(index, esCfg.indexType, id);
 
-        setJoinFields(json, type, parent, root);
-        req = req.source(json);
+        req = req.source(source(obj, type, parent, root), XContentType.JSON);
         return (parent != null) ? req.routing(root) : req;
     }
 
-    private UpdateRequest createUpdateRequest(String index, String type, String id, Map<String, Object> json, String parent, String root) {
+    private <T extends Entity> UpdateRequest createUpdateRequest(String index, String type, String id, T obj, String parent, String root) {
         UpdateRequest req = new UpdateRequest(index, esCfg.indexType, id);
 
-        setJoinFields(json, type, parent, root);
-        req = req.doc(json);
+        req = req.doc(BytesReference.toBytes(source(obj, type, parent, root)), XContentType.JSON);
         return (parent != null) ? req.routing(root) : req;
     }
 
-    private void setJoinFields(Map<String, Object> json, String type, String parent, String root) {
-        json.put(esCfg.docTypeField, type);
+    /**
+     * the entity is written with its join fields directly in the request bytes
+     */
+    private <T extends Entity> BytesReference source(T obj, String type, String parent, String root) {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            writeJson(obj, joinFields(type, parent, root), out);
+            return out.bytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot serialize " + type + " " + obj.getId(), e);
+        }
+    }
+
+    private Map<String, Object> joinFields(String type, String parent, String root) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put(esCfg.docTypeField, type);
         if (parent != null && type.equals("NamedEntity")) {
-            json.put("rootDocument", root);
-            json.put(esCfg.indexJoinField, new HashMap<String, String>() {{
+            fields.put("rootDocument", root);
+            fields.put(esCfg.indexJoinField, new HashMap<String, String>() {{
                 put("name", type);
                 put("parent", parent);
             }});
         } else {
-            json.put(esCfg.indexJoinField, new HashMap<String, String>() {{
+            fields.put(esCfg.indexJoinField, new HashMap<String, String>() {{
                 put("name", type);
             }});
         }
+        return fields;
     }
 
     public <T extends Entity> T get(String indexName, String id) {
@@ -173,22 +319,55 @@ public class ElasticsearchIndexer implements Indexer {
 
     @Override
     public <T extends Entity> T get(String indexName, String id, String root) {
-        String type = null;
         try {
             final GetRequest req = new GetRequest(indexName, esCfg.indexType, id).routing(root);
             final GetResponse resp = client.get(req);
             if (resp.isExists()) {
-                Map<String, Object> sourceAsMap = resp.getSourceAsMap();
-                type = (String) sourceAsMap.get(esCfg.docTypeField);
-                Class<T> tClass = (Class<T>) Class.forName("org.icij.datashare.text." + type);
-                return JsonObjectMapper.getObject(id, sourceAsMap, tClass);
+                return toEntity(id, resp.getSourceAsBytesRef());
             }
         } catch (IOException e) {
             LOGGER.error("Failed to get entity " + id + " in index " + indexName, e);
+        }
+        return null;
+    }
+
+    @Override
+    public <T extends Entity> List<T> get(String indexName, List<Pair<String, String>> idsAndRoutings, String... sourceFields) throws IOException {
+        MultiGetRequest req = new MultiGetRequest();
+        FetchSourceContext fetchSource = sourceFields.length == 0 ? FetchSourceContext.FETCH_SOURCE :
+                new FetchSourceContext(true, Stream.concat(Stream.of(esCfg.docTypeField), Arrays.stream(sourceFields)).toArray(String[]::new), new String[] {});
+        idsAndRoutings.forEach(idAndRouting -> req.add(new MultiGetRequest.Item(indexName, esCfg.indexType, idAndRouting._1())
+                .routing(idAndRouting._2()).fetchSourceContext(fetchSource)));
+
+        List<T> entities = new ArrayList<>(idsAndRoutings.size());
+        MultiGetResponse resp = client.multiGet(req); // a request failure is thrown so that the caller can retry the batch
+        for (MultiGetItemResponse item : resp.getResponses()) {
+            if (item.isFailed()) {
+                LOGGER.error("Failed to get entity " + item.getId() + " in index " + indexName, item.getFailure().getFailure());
+                entities.add(null);
+            } else {
+                entities.add(item.getResponse().isExists() ? toEntity(item.getId(), item.getResponse().getSourceAsBytesRef()) : null);
+            }
+        }
+        return entities;
+    }
+
+    private <T extends Entity> T toEntity(String id, BytesReference source) {
+        BytesRef bytes = sourceBytes(source);
+        return JsonObjectMapper.getObject(id, bytes.bytes, bytes.offset, bytes.length, esCfg.docTypeField, this::entityClass);
+    }
+
+    private <T extends Entity> Class<T> entityClass(String type) {
+        try {
+            return (Class<T>) Class.forName("org.icij.datashare.text." + type);
         } catch (ClassNotFoundException e) {
             LOGGER.error("no entity for type " + type);
+            return null;
         }
-        return null;
+    }
+
+    private static BytesRef sourceBytes(BytesReference source) {
+        return source == null ? new BytesRef("{}") : source.toBytesRef();
     }
 
     @Override
@@ -198,7 +377,12 @@ public class ElasticsearchIndexer implements Indexer {
 
     @Override
     public boolean createIndex(final String indexName) {
-        return ElasticsearchConfiguration.createIndex(client, indexName, esCfg.indexType);
+        return createIndex(indexName, new HashMap<>());
+    }
+
+    @Override
+    public boolean createIndex(final String indexName, final Map<String, String> indexOptions) {
+        return ElasticsearchConfiguration.createIndex(client, indexName, esCfg.indexType, esCfg.getIndexSettings(indexName, indexOptions));
     }
 
     @Override
@@ -217,7 +401,8 @@ public class ElasticsearchIndexer implements Indexer {
     }
 
     private static <T extends Entity> T hitToObject(SearchHit searchHit, Class<T> cls) {
-        return JsonObjectMapper.getObject(searchHit.getId(), searchHit.getSourceAsMap(), cls);
+        BytesRef bytes = sourceBytes(searchHit.getSourceRef());
+        return JsonObjectMapper.getObject(searchHit.getId(), bytes.bytes, bytes.offset, bytes.length, cls);
     }
 
     public ElasticsearchIndexer withRefresh(WriteRequest.RefreshPolicy refresh) {
@@ -227,6 +412,14 @@ public class ElasticsearchIndexer implements Indexer {
 
     static class ElasticsearchSearcher implements Searcher {
         static final TimeValue KEEP_ALIVE = new TimeValue(60000);
+        /**
+         * search after is sorted on the id keyword field : it has doc values whereas sorting on _id
+         * loads its fielddata in the heap of the data nodes. Indices created before the id field was
+         * mapped are still sorted on _id.
+         */
+        static final String SEARCH_AFTER_TIEBREAKER = "id";
+        static final String LEGACY_SEARCH_AFTER_TIEBREAKER = "_id";
+        private static final Map<String, String> tiebreakers = new ConcurrentHashMap<>();
         private final BoolQueryBuilder boolQuery;
         private final RestHighLevelClient client;
         private final ElasticsearchConfiguration config;
@@ -234,7 +427,7 @@ public class ElasticsearchIndexer implements Indexer {
         private final Class<? extends Entity> cls;
         private final SearchSourceBuilder sourceBuilder;
         private String scrollId;
-        private long totalHits;
+        private final AtomicLong totalHits = new AtomicLong();
 
         ElasticsearchSearcher(RestHighLevelClient client, ElasticsearchConfiguration config, final String indexName, final Class<? extends Entity> cls) {
             this.client = client;
@@ -269,7 +462,7 @@ public class ElasticsearchIndexer implements Indexer {
                 searchRequest.types(config.indexType);
                 search = client.search(searchRequest);
                 scrollId = search.getScrollId();
-                totalHits = search.getHits().totalHits;
+                totalHits.set(search.getHits().totalHits);
             } else {
                 search = client.searchScroll(new SearchScrollRequest(scrollId).scroll(KEEP_ALIVE));
                 scrollId = search.getScrollId();
@@ -277,6 +470,66 @@ public class ElasticsearchIndexer implements Indexer {
             return resultStream(this.cls, () -> search.getHits().iterator());
         }
 
+        @Override
+        public Stream<? extends Entity> scroll(int slices) {
+            sourceBuilder.query(boolQuery);
+            totalHits.set(0);
+            List<ScrollIterator> iterators = slices <= 1 ?
+                    singletonList(new ScrollIterator(sourceBuilder)) :
+                    IntStream.range(0, slices).mapToObj(slice ->
+                            new ScrollIterator(sourceBuilder.copyWithNewSlice(new SliceBuilder(slice, slices)))).collect(toList());
+            iterators.forEach(ScrollIterator::hasNext); // waits for first pages to know total hits
+
+            Stream<? extends Entity> stream = iterators.size() == 1 ?
+                    resultStream(this.cls, () -> iterators.get(0)) :
+                    iterators.stream().parallel().flatMap(iterator -> resultStream(this.cls, () -> iterator));
+            return stream.onClose(() -> iterators.forEach(ScrollIterator::close));
+        }
+
+        @Override
+        public Stream<? extends Entity> searchAfter() {
+            SearchSourceBuilder source = sourceBuilder.copyWithNewSlice(null).query(boolQuery).sort(tiebreaker());
+            totalHits.set(0);
+            SearchAfterIterator iterator = new SearchAfterIterator(source);
+            iterator.hasNext(); // waits for first page to know total hits
+            return resultStream(this.cls, () -> iterator).onClose(iterator::close);
+        }
+
+        private String tiebreaker() {
+            return tiebreakers.computeIfAbsent(indexName, index -> {
+                try {
+                    if (isKeyword(index, SEARCH_AFTER_TIEBREAKER)) {
+                        return SEARCH_AFTER_TIEBREAKER;
+                    }
+                    LOGGER.warn("index {} has no keyword {} field, search after is sorted on {}",
+                            index, SEARCH_AFTER_TIEBREAKER, LEGACY_SEARCH_AFTER_TIEBREAKER);
+                    return LEGACY_SEARCH_AFTER_TIEBREAKER;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+
+        /**
+         * the field mapping is read with the low level client, the high level client has no get field mappings in 6.3
+         */
+        private boolean isKeyword(String index, String field) throws IOException {
+            Response response = client.getLowLevelClient().performRequest("GET",
+                    index + "/_mapping/" + config.indexType + "/field/" + field);
+            Map<String, Object> indices;
+            try (InputStream content = response.getEntity().getContent()) {
+                indices = XContentHelper.convertToMap(XContentType.JSON.xContent(), content, false);
+            }
+            return indices.values().stream()
+                    .map(mappings -> child(child(child(child(child(mappings, "mappings"), config.indexType), field), "mapping"), field))
+                    .anyMatch(mapping -> "keyword".equals(mapping.get("type")));
+        }
+
+        private static Map<String, Object> child(Object map, String key) {
+            Object child = map instanceof Map ? ((Map<?, ?>) map).get(key) : null;
+            return child instanceof Map ? (Map<String, Object>) child : new HashMap<>();
+        }
+
         @Override
         public Searcher withSource(String... fields) {
             sourceBuilder.fetchSource(fields, new String[] {});
@@ -321,17 +574,148 @@ public class ElasticsearchIndexer implements Indexer {
             clearScrollRequest.addScrollId(scrollId);
             this.client.clearScroll(clearScrollRequest);
             scrollId = null;
-            totalHits = 0;
+            totalHits.set(0);
         }
 
         @Override
         public long totalHits() {
-            return totalHits;
+            return totalHits.get();
         }
 
         @Override
         public String toString() {
             return "boolQuery : " + boolQuery;
         }
+
+        /**
+         * walks all the pages of a search.
+         * The next page is requested asynchronously as soon as the current one is received,
+         * so that it is fetched while the current page is consumed.
+         */
+        private abstract class PageIterator implements Iterator<SearchHit>, Closeable {
+            private CompletableFuture<SearchResponse> nextPage;
+            private Iterator<SearchHit> page = emptyIterator();
+            private boolean firstPage = true;
+            private boolean lastPage = false;
+
+            PageIterator(SearchSourceBuilder source, TimeValue keepAlive) {
+                SearchRequest searchRequest = new SearchRequest(new String[]{indexName}, source);
+                searchRequest.types(config.indexType);
+                if (keepAlive != null) {
+                    searchRequest.scroll(keepAlive);
+                }
+                nextPage = async(listener -> client.searchAsync(searchRequest, listener));
+            }
+
+            abstract CompletableFuture<SearchResponse> fetchNext(SearchResponse response);
+
+            void afterLastPage(SearchResponse response) {}
+
+            @Override
+            public boolean hasNext() {
+                if (!page.hasNext() && !lastPage) {
+                    page = takePage();
+                }
+                return page.hasNext();
+            }
+
+            @Override
+            public SearchHit next() {
+                hasNext();
+                return page.next();
+            }
+
+            private Iterator<SearchHit> takePage() {
+                SearchResponse response = join(nextPage);
+                if (firstPage) {
+                    totalHits.addAndGet(response.getHits().totalHits);
+                    firstPage = false;
+                }
+                SearchHit[] hits = response.getHits().getHits();
+                if (hits.length == 0) {
+                    lastPage = true;
+                    afterLastPage(response);
+                } else {
+                    nextPage = fetchNext(response);
+                }
+                return Arrays.asList(hits).iterator();
+            }
+
+            @Override
+            public void close() {
+                if (!lastPage) {
+                    lastPage = true;
+                    page = emptyIterator();
+                    nextPage.thenAccept(this::afterLastPage);
+                }
+            }
+        }
+
+        /**
+         * one scroll (or one slice of a sliced scroll).
+         * The scroll context is cleared after the last page or when the iterator is closed.
+         */
+        private class ScrollIterator extends PageIterator {
+            ScrollIterator(SearchSourceBuilder source) {
+                super(source, KEEP_ALIVE);
+            }
+
+            @Override
+            CompletableFuture<SearchResponse> fetchNext(SearchResponse response) {
+                SearchScrollRequest scrollRequest = new SearchScrollRequest(response.getScrollId()).scroll(KEEP_ALIVE);
+                return async(listener -> client.searchScrollAsync(scrollRequest, listener));
+            }
+
+            @Override
+            void afterLastPage(SearchResponse response) {
+                ClearScrollRequest clearScrollRequest = new ClearScrollRequest();
+                clearScrollRequest.addScrollId(response.getScrollId());
+                client.clearScrollAsync(clearScrollRequest, ActionListener.wrap(
+                        r -> LOGGER.debug("scroll context cleared for {}", indexName),
+                        e -> LOGGER.warn("cannot clear scroll context for " + indexName, e)));
+            }
+        }
+
+        /**
+         * stateless pagination : each page is searched after the sort values of the last hit of the previous one.
+         * Nothing is kept on elasticsearch nodes between pages.
+         */
+        private class SearchAfterIterator extends PageIterator {
+            private final SearchSourceBuilder source;
+
+            SearchAfterIterator(SearchSourceBuilder source) {
+                super(source, null);
+                this.source = source;
+            }
+
+            @Override
+            CompletableFuture<SearchResponse> fetchNext(SearchResponse response) {
+                SearchHit[] hits = response.getHits().getHits();
+                SearchSourceBuilder nextSource = source.copyWithNewSlice(source.slice()).searchAfter(hits[hits.length - 1].getSortValues());
+                SearchRequest searchRequest = new SearchRequest(new String[]{indexName}, nextSource);
+                searchRequest.types(config.indexType);
+                return async(listener -> client.searchAsync(searchRequest, listener));
+            }
+        }
+    }
+
+    private static <T> CompletableFuture<T> async(Consumer<ActionListener<T>> asyncCall) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        asyncCall.accept(ActionListener.wrap(future::complete, future::completeExceptionally));
+        return future;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw new UncheckedIOException((IOException) e.getCause());
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
     }
 }
@@ -1,9 +1,16 @@
 package org.icij.datashare.text.indexing.elasticsearch;
 
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.action.support.WriteRequest;
 import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentType;
 import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.com.Message;
 import org.icij.datashare.com.Publisher;
@@ -17,32 +24,52 @@ import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.Reader;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import static java.lang.Integer.valueOf;
 import static java.lang.System.currentTimeMillis;
 import static java.nio.file.Paths.get;
 import static java.util.Optional.ofNullable;
 import static org.apache.tika.metadata.HttpHeaders.*;
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
 import static org.icij.datashare.com.Channel.NLP;
 import static org.icij.datashare.com.Message.Type.EXTRACT_NLP;
 import static org.icij.datashare.text.Hasher.shorten;
 import static org.icij.datashare.text.indexing.elasticsearch.ElasticsearchConfiguration.*;
 
+/**
+ * in bulk mode the EXTRACT_NLP messages of the indexed documents are published by a dedicated thread,
+ * not by the bulk listener that runs on the elasticsearch client I/O thread.
+ * The number of documents added and not yet published is bounded : writeDocument waits when a slow publisher
+ * falls behind.
+ */
 public class ElasticsearchSpewer extends Spewer implements Serializable {
     private static final Logger logger = LoggerFactory.getLogger(ElasticsearchSpewer.class);
     public static final String DEFAULT_VALUE_UNKNOWN = "unknown";
+    static final int LANGUAGE_SAMPLE_SIZE = 64 * 1024;
 
     private final RestHighLevelClient client;
     private final ElasticsearchConfiguration esCfg;
     private final Publisher publisher;
     private final LanguageGuesser languageGuesser;
+    private final RetryingBulkSender bulkSender;
+    private final BulkProcessor bulkProcessor;
+    private final ExecutorService nlpPublisher;
+    private final Semaphore unpublished;
     private String indexName;
+    private boolean ingesting = false;
 
     @Inject
     public ElasticsearchSpewer(final RestHighLevelClient client, LanguageGuesser languageGuesser, final FieldNames fields,
@@ -52,21 +79,130 @@ public class ElasticsearchSpewer extends Spewer implements Serializable {
         this.languageGuesser = languageGuesser;
         this.publisher = publisher;
         this.esCfg = new ElasticsearchConfiguration(propertiesProvider);
+        this.bulkSender = new RetryingBulkSender(client, esCfg.bulkBackoffPolicy());
+        this.nlpPublisher = esCfg.isBulkEnabled() ? Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "nlp-publisher");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+        this.unpublished = new Semaphore(esCfg.bulkActions * (esCfg.bulkConcurrentRequests + 2));
+        this.bulkProcessor = esCfg.isBulkEnabled() ? createBulkProcessor() : null;
         logger.info("spewer defined with {}", esCfg);
     }
 
     @Override
     protected void writeDocument(TikaDocument doc, Reader reader, TikaDocument parent, TikaDocument root, int level) throws IOException {
         final IndexRequest req = prepareRequest(doc, reader, parent, root, level);
+        if (bulkProcessor != null) {
+            try {
+                unpublished.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting for the publication of indexed documents");
+            }
+            try {
+                bulkProcessor.add(req);
+            } catch (RuntimeException e) {
+                unpublished.release();
+                throw e;
+            }
+            return;
+        }
+        req.setRefreshPolicy(esCfg.refreshPolicy);
         long before = currentTimeMillis();
         IndexResponse indexResponse = client.index(req);
         logger.info("{} {} added to elasticsearch in {}ms: {}", parent == null ? "Document" : "Child",
                 shorten(indexResponse.getId(), 4), currentTimeMillis() - before, doc);
-        synchronized (publisher) { // jedis instance is not thread safe and Spewer is shared in DocumentConsumer threads
-            publisher.publish(NLP, new Message(EXTRACT_NLP)
-                    .add(Message.Field.INDEX_NAME, indexName)
-                    .add(Message.Field.DOC_ID, indexResponse.getId())
-                    .add(Message.Field.R_ID, parent == null ? doc.getId() : root.getId()));
+        publishExtractNlp(indexName, indexResponse.getId(), parent == null ? doc.getId() : root.getId());
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (bulkProcessor != null) {
+            logger.info("flushing and closing bulk processor");
+            if (!bulkProcessor.awaitClose(1, TimeUnit.MINUTES)) {
+                logger.error("bulk processor closed with pending bulk requests");
+            }
+            nlpPublisher.shutdown();
+            if (!nlpPublisher.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.error("nlp publisher closed with pending messages");
+            }
+        }
+        bulkSender.close();
+        super.close();
+    }
+
+    private void publishExtractNlp(String index, String id, String rootId) {
+        publisher.publish(NLP, extractNlp(index, id, rootId));
+    }
+
+    private Message extractNlp(String index, String id, String rootId) {
+        return new Message(EXTRACT_NLP)
+                .add(Message.Field.INDEX_NAME, index)
+                .add(Message.Field.DOC_ID, id)
+                .add(Message.Field.R_ID, rootId);
+    }
+
+    private void publishExtractNlp(List<Message> messages) {
+        for (Message message : messages) {
+            try {
+                publisher.publish(NLP, message);
+            } catch (RuntimeException e) {
+                logger.error("cannot publish " + message, e);
+            } finally {
+                unpublished.release();
+            }
+        }
+    }
+
+    private BulkProcessor createBulkProcessor() {
+        return BulkProcessor.builder(bulkSender, new BulkProcessor.Listener() {
+            @Override
+            public void beforeBulk(long executionId, BulkRequest request) {
+                logger.debug("sending bulk #{} of {} document(s) ({} bytes)", executionId, request.numberOfActions(), request.estimatedSizeInBytes());
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+                logger.info("bulk #{} of {} document(s) added to elasticsearch in {}ms", executionId, request.numberOfActions(), response.getTook().millis());
+                List<Message> indexed = new ArrayList<>();
+                for (BulkItemResponse item : response.getItems()) {
+                    DocWriteRequest<?> itemRequest = request.requests().get(item.getItemId());
+                    if (item.isFailed()) {
+                        logger.error("document {} failed to be indexed in bulk #{}: {}", itemRequest.id(), executionId, item.getFailureMessage());
+                        unpublished.release();
+                    } else {
+                        indexed.add(extractNlp(item.getIndex(), item.getId(), ofNullable(itemRequest.routing()).orElse(item.getId())));
+                    }
+                }
+                nlpPublisher.execute(() -> publishExtractNlp(indexed));
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+                logger.error("bulk #{} failed, {} document(s) not indexed", executionId, request.numberOfActions(), failure);
+                request.requests().forEach(r -> logger.error("document {} not indexed", r.id()));
+                unpublished.release(request.numberOfActions());
+            }
+        }).setBulkActions(esCfg.bulkActions)
+          .setBulkSize(esCfg.bulkSize)
+          .setFlushInterval(esCfg.bulkFlushInterval)
+          .setConcurrentRequests(esCfg.bulkConcurrentRequests)
+          .setBackoffPolicy(esCfg.bulkBackoffPolicy())
+          .build();
+    }
+
+    public void startIngestion() throws IOException {
+        if (esCfg.ingestionMode && !ingesting) {
+            esCfg.startIngestion(client, indexName);
+            ingesting = true;
+        }
+    }
+
+    public void endIngestion() throws IOException {
+        if (ingesting) {
+            ingesting = false;
+            esCfg.endIngestion(client, indexName);
         }
     }
 
@@ -76,13 +212,13 @@ public class ElasticsearchSpewer extends Spewer implements Serializable {
     }
 
     public void createIndex() {
-        ElasticsearchConfiguration.createIndex(client, indexName, DEFAULT_INDEX_TYPE);
+        ElasticsearchConfiguration.createIndex(client, indexName, DEFAULT_INDEX_TYPE, esCfg.getIndexSettings(indexName));
     }
 
     private IndexRequest prepareRequest(final TikaDocument document, final Reader reader,
                                         final TikaDocument parent, TikaDocument root, final int level) throws IOException {
         IndexRequest req = new IndexRequest(indexName, esCfg.indexType, document.getId());
-        Map<String, Object> jsonDocument = getMap(document, reader);
+        Map<String, Object> jsonDocument = getMap(document);
 
         if (parent != null) {
             jsonDocument.put(DEFAULT_PARENT_DOC_FIELD, parent.getId());
@@ -90,14 +226,28 @@ public class ElasticsearchSpewer extends Spewer implements Serializable {
             req.routing(root.getId());
         }
         jsonDocument.put("extractionLevel", level);
-        req = req.source(jsonDocument);
-        req.setRefreshPolicy(esCfg.refreshPolicy);
-        return req;
+        return req.source(getSource(jsonDocument, reader));
+    }
+
+    /**
+     * the content is streamed from the reader into the request body and the language
+     * is guessed from a sample of it taken during the copy
+     */
+    XContentBuilder getSource(Map<String, Object> jsonDocument, Reader reader) throws IOException {
+        XContentBuilder builder = jsonBuilder().startObject();
+        for (Map.Entry<String, Object> field : jsonDocument.entrySet()) {
+            builder.field(field.getKey(), field.getValue());
+        }
+        JsonContentStream content = new JsonContentStream(reader, LANGUAGE_SAMPLE_SIZE);
+        builder.rawField(ES_CONTENT_FIELD, content, XContentType.JSON);
+        builder.field("language", languageGuesser.guess(content.getSample()));
+        return builder.endObject();
     }
 
-    Map<String, Object> getMap(TikaDocument document, Reader reader) throws IOException {
+    Map<String, Object> getMap(TikaDocument document) throws IOException {
         Map<String, Object> jsonDocument = new HashMap<>();
 
+        jsonDocument.put("id", document.getId());
         jsonDocument.put(esCfg.docTypeField, ES_DOCUMENT_TYPE);
         jsonDocument.put(esCfg.indexJoinField, new HashMap<String, String>() {{
             put("name", "Document");
@@ -111,10 +261,6 @@ public class ElasticsearchSpewer extends Spewer implements Serializable {
         jsonDocument.put("contentType", ofNullable(document.getMetadata().get(CONTENT_TYPE)).orElse(DEFAULT_VALUE_UNKNOWN).split(";")[0]);
         jsonDocument.put("contentLength", valueOf(ofNullable(document.getMetadata().get(CONTENT_LENGTH)).orElse("-1")));
         jsonDocument.put("contentEncoding", ofNullable(document.getMetadata().get(CONTENT_ENCODING)).orElse(DEFAULT_VALUE_UNKNOWN));
-
-        String content = toString(reader).trim();
-        jsonDocument.put("language", languageGuesser.guess(content));
-        jsonDocument.put(ES_CONTENT_FIELD, content);
         return jsonDocument;
     }
 
@@ -0,0 +1,121 @@
+package org.icij.datashare.text.indexing.elasticsearch;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * streams the text of a reader as a trimmed JSON string value (quoted, escaped and UTF-8 encoded)
+ * so that the content can be copied into the request body without being materialized as a String.
+ *
+ * the first sampleSize characters are kept to guess the document language.
+ */
+class JsonContentStream extends InputStream {
+    private static final int BUFFER_SIZE = 8192;
+    private final Reader reader;
+    private final int sampleSize;
+    private final StringBuilder sample = new StringBuilder();
+    private final StringBuilder pendingWhitespaces = new StringBuilder();
+    private final StringBuilder chars = new StringBuilder();
+    private final char[] readBuffer = new char[BUFFER_SIZE];
+    private byte[] bytes = {'"'};
+    private int position = 0;
+    private boolean leading = true;
+    private boolean eof = false;
+    private char highSurrogate = 0;
+
+    JsonContentStream(Reader reader, int sampleSize) {
+        this.reader = reader;
+        this.sampleSize = sampleSize;
+    }
+
+    String getSample() {
+        return sample.toString();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position == bytes.length && !fill()) {
+            return -1;
+        }
+        return bytes[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (position == bytes.length && !fill()) {
+            return -1;
+        }
+        int n = Math.min(len, bytes.length - position);
+        System.arraycopy(bytes, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    private boolean fill() throws IOException {
+        while (!eof) {
+            int n = reader.read(readBuffer);
+            chars.setLength(0);
+            if (highSurrogate != 0) {
+                chars.append(highSurrogate);
+                highSurrogate = 0;
+            }
+            if (n < 0) {
+                eof = true;
+            } else {
+                append(n);
+                if (chars.length() > 0 && Character.isHighSurrogate(chars.charAt(chars.length() - 1))) {
+                    highSurrogate = chars.charAt(chars.length() - 1); // encoded with its low surrogate
+                    chars.setLength(chars.length() - 1);
+                }
+            }
+            StringBuilder escaped = new StringBuilder(chars.length() + 1);
+            JsonStringEncoder.getInstance().quoteAsString(chars, escaped);
+            if (eof) {
+                escaped.append('"');
+            }
+            if (escaped.length() > 0) {
+                bytes = escaped.toString().getBytes(UTF_8);
+                position = 0;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // same as String.trim() : leading and trailing chars lower or equal to space are removed
+    private void append(int n) {
+        for (int i = 0; i < n; i++) {
+            char c = readBuffer[i];
+            if (c <= ' ') {
+                if (!leading) {
+                    pendingWhitespaces.append(c);
+                }
+            } else {
+                leading = false;
+                if (pendingWhitespaces.length() > 0) {
+                    emit(pendingWhitespaces);
+                    pendingWhitespaces.setLength(0);
+                }
+                chars.append(c);
+                if (sample.length() < sampleSize) {
+                    sample.append(c);
+                }
+            }
+        }
+    }
+
+    private void emit(CharSequence whitespaces) {
+        chars.append(whitespaces);
+        if (sample.length() < sampleSize) {
+            sample.append(whitespaces, 0, Math.min(whitespaces.length(), sampleSize - sample.length()));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.icij.datashare.text.indexing.elasticsearch;
+
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.unit.TimeValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.BiConsumer;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.elasticsearch.rest.RestStatus.TOO_MANY_REQUESTS;
+
+/**
+ * sends bulk requests with the asynchronous client and re-sends them with an exponential backoff
+ * when elasticsearch rejects the whole request with a 429 (es_rejected_execution_exception).
+ *
+ * item level 429 are retried by the BulkProcessor itself with the same backoff policy.
+ */
+class RetryingBulkSender implements BiConsumer<BulkRequest, ActionListener<BulkResponse>>, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(RetryingBulkSender.class);
+    private final RestHighLevelClient client;
+    private final BackoffPolicy backoffPolicy;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "bulk-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    RetryingBulkSender(RestHighLevelClient client, BackoffPolicy backoffPolicy) {
+        this.client = client;
+        this.backoffPolicy = backoffPolicy;
+    }
+
+    @Override
+    public void accept(BulkRequest request, ActionListener<BulkResponse> listener) {
+        send(request, listener, backoffPolicy.iterator());
+    }
+
+    BulkResponse send(BulkRequest request) throws IOException {
+        PlainActionFuture<BulkResponse> future = PlainActionFuture.newFuture();
+        accept(request, future);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for bulk response");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private void send(BulkRequest request, ActionListener<BulkResponse> listener, Iterator<TimeValue> backoff) {
+        client.bulkAsync(request, new ActionListener<BulkResponse>() {
+            @Override
+            public void onResponse(BulkResponse bulkResponse) {
+                listener.onResponse(bulkResponse);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                if (ExceptionsHelper.status(e) == TOO_MANY_REQUESTS && backoff.hasNext() && !scheduler.isShutdown()) {
+                    TimeValue delay = backoff.next();
+                    logger.warn("bulk of {} action(s) rejected by elasticsearch, retrying in {}", request.numberOfActions(), delay);
+                    scheduler.schedule(() -> send(request, listener, backoff), delay.millis(), MILLISECONDS);
+                } else {
+                    listener.onFailure(e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdown();
+    }
+}
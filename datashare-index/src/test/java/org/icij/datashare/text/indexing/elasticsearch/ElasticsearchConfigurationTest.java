@@ -2,11 +2,14 @@ package org.icij.datashare.text.indexing.elasticsearch;
 
 import org.apache.http.util.EntityUtils;
 import org.elasticsearch.client.Response;
+import org.elasticsearch.common.settings.Settings;
 import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.test.ElasticsearchRule;
 import org.junit.ClassRule;
 import org.junit.Test;
 
+import java.util.HashMap;
+
 import static org.fest.assertions.Assertions.assertThat;
 import static org.icij.datashare.test.ElasticsearchRule.TEST_INDEX;
 
@@ -31,4 +34,32 @@ public class ElasticsearchConfigurationTest {
 
         assertThat(EntityUtils.toString(response.getEntity())).contains("settings");
     }
+
+    @Test
+    public void test_index_settings_from_properties_and_options() {
+        ElasticsearchConfiguration cfg = new ElasticsearchConfiguration(new PropertiesProvider(new HashMap<String, String>() {{
+            put("indexReplicas", "2");
+            put("prj.indexCodec", "best_compression");
+        }}));
+
+        Settings settings = cfg.getIndexSettings("prj", new HashMap<String, String>() {{
+            put("indexShards", "4");
+        }});
+
+        assertThat(settings.get("index.number_of_shards")).isEqualTo("4");
+        assertThat(settings.get("index.number_of_replicas")).isEqualTo("2");
+        assertThat(settings.get("index.codec")).isEqualTo("best_compression");
+        assertThat(cfg.getIndexSettings("other").get("index.codec")).isNull();
+    }
+
+    @Test
+    public void test_index_shards_sized_from_expected_documents() {
+        ElasticsearchConfiguration cfg = new ElasticsearchConfiguration(new PropertiesProvider(new HashMap<String, String>() {{
+            put("indexDocumentsPerShard", "1000");
+        }}));
+
+        assertThat(cfg.getIndexSettings("prj", new HashMap<String, String>() {{
+            put("expectedDocuments", "2500");
+        }}).get("index.number_of_shards")).isEqualTo("3");
+    }
 }
@@ -1,7 +1,10 @@
 package org.icij.datashare.text.indexing.elasticsearch;
 
+import org.apache.http.HttpHost;
 import org.elasticsearch.action.get.GetRequest;
 import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
 import org.icij.datashare.Entity;
 import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.test.ElasticsearchRule;
@@ -22,6 +25,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import static java.lang.String.format;
 import static java.util.Arrays.asList;
@@ -85,6 +90,51 @@ public class ElasticsearchIndexerTest {
         assertThat((ArrayList<String>) resp.getSourceAsMap().get("nerTags")).containsExactly("OPENNLP");
     }
 
+    @Test
+    public void test_bulk_add_keeps_the_tags_of_other_pipelines() throws IOException {
+        Document doc = new org.icij.datashare.text.Document(project("prj"), Paths.get("doc.txt"), "content",
+                Language.FRENCH, Charset.defaultCharset(), "application/pdf", new HashMap<>(),
+                INDEXED, new HashSet<Pipeline.Type>() {{ add(OPENNLP);}}, 432L);
+        indexer.add(TEST_INDEX, doc);
+
+        assertThat(indexer.bulkAdd(TEST_INDEX, CORENLP, emptyList(), doc)).isTrue();
+
+        Document actual = indexer.get(TEST_INDEX, doc.getId());
+        assertThat(actual.getStatus()).isEqualTo(DONE);
+        assertThat(actual.getNerTags()).containsOnly(OPENNLP, CORENLP);
+    }
+
+    @Test
+    public void test_bulk_add_with_named_entities_writer_is_flushed_on_close() throws IOException {
+        Document doc1 = new org.icij.datashare.text.Document(project("prj"), Paths.get("doc1.txt"), "content",
+                Language.FRENCH, Charset.defaultCharset(), "text/plain", new HashMap<>(), INDEXED, 12L);
+        Document doc2 = new org.icij.datashare.text.Document(project("prj"), Paths.get("doc2.txt"), "content",
+                Language.FRENCH, Charset.defaultCharset(), "text/plain", new HashMap<>(), INDEXED, 12L);
+        indexer.add(TEST_INDEX, doc1);
+        indexer.add(TEST_INDEX, doc2);
+        NamedEntity ne1 = create(PERSON, "John Doe", 12, doc1.getId(), CORENLP, Language.FRENCH);
+        NamedEntity ne2 = create(PERSON, "Jane Doe", 12, doc2.getId(), CORENLP, Language.FRENCH);
+        ElasticsearchIndexer bulkIndexer = new ElasticsearchIndexer(new RestHighLevelClient(RestClient.builder(HttpHost.create("http://elasticsearch:9200"))),
+                new PropertiesProvider(new HashMap<String, String>() {{
+                    put("bulkActions", "100");
+                    put("bulkFlushInterval", "1h");
+                }}));
+
+        AtomicInteger written = new AtomicInteger();
+
+        assertThat(bulkIndexer.bulkAdd(TEST_INDEX, CORENLP, singletonList(ne1), doc1, written::incrementAndGet)).isTrue();
+        assertThat(bulkIndexer.bulkAdd(TEST_INDEX, CORENLP, singletonList(ne2), doc2, written::incrementAndGet)).isTrue();
+        assertThat(written.get()).isEqualTo(0);
+        bulkIndexer.close();
+
+        assertThat(written.get()).isEqualTo(2);
+
+        assertThat(((Document) indexer.get(TEST_INDEX, doc1.getId())).getStatus()).isEqualTo(DONE);
+        assertThat(((Document) indexer.get(TEST_INDEX, doc2.getId())).getNerTags()).containsOnly(CORENLP);
+        assertThat((NamedEntity) indexer.get(TEST_INDEX, ne1.getId(), doc1.getId())).isNotNull();
+        assertThat((NamedEntity) indexer.get(TEST_INDEX, ne2.getId(), doc2.getId())).isNotNull();
+    }
+
     @Test
     public void test_bulk_add_for_embedded_doc() throws IOException {
         Document parent = new org.icij.datashare.text.Document(project("prj"), Paths.get("mail.eml"), "content",
@@ -224,6 +274,48 @@ public class ElasticsearchIndexerTest {
         searcher.clearScroll();
     }
 
+    @Test
+    public void test_search_with_sliced_scroll() throws IOException {
+        for (int i = 0 ; i < 12; i++) {
+            Document doc = new org.icij.datashare.text.Document(project("prj"), Paths.get(format("doc%d.txt", i)), format("content %d", i), Language.ENGLISH,
+                Charset.defaultCharset(), "text/plain", new HashMap<>(), DONE, 345L);
+            indexer.add(TEST_INDEX,doc);
+        }
+
+        Indexer.Searcher searcher = indexer.search(TEST_INDEX, Document.class).limit(5);
+        assertThat(searcher.scroll(3).map(Entity::getId).distinct().count()).isEqualTo(12);
+        assertThat(searcher.totalHits()).isEqualTo(12);
+        assertThat(indexer.search(TEST_INDEX, Document.class).limit(5).scroll(1).count()).isEqualTo(12);
+    }
+
+    @Test
+    public void test_scroll_stream_can_be_closed_before_the_end() throws IOException {
+        for (int i = 0 ; i < 12; i++) {
+            Document doc = new org.icij.datashare.text.Document(project("prj"), Paths.get(format("doc%d.txt", i)), format("content %d", i), Language.ENGLISH,
+                Charset.defaultCharset(), "text/plain", new HashMap<>(), DONE, 345L);
+            indexer.add(TEST_INDEX,doc);
+        }
+
+        Indexer.Searcher searcher = indexer.search(TEST_INDEX, Document.class).limit(5);
+        try (Stream<? extends Entity> documents = searcher.scroll(1)) {
+            assertThat(searcher.totalHits()).isEqualTo(12);
+            assertThat(documents.limit(7).count()).isEqualTo(7);
+        }
+    }
+
+    @Test
+    public void test_search_after() throws IOException {
+        for (int i = 0 ; i < 12; i++) {
+            Document doc = new org.icij.datashare.text.Document(project("prj"), Paths.get(format("doc%d.txt", i)), format("content %d", i), Language.ENGLISH,
+                Charset.defaultCharset(), "text/plain", new HashMap<>(), DONE, 345L);
+            indexer.add(TEST_INDEX,doc);
+        }
+
+        Indexer.Searcher searcher = indexer.search(TEST_INDEX, Document.class).limit(5);
+        assertThat(searcher.searchAfter().map(Entity::getId).distinct().count()).isEqualTo(12);
+        assertThat(searcher.totalHits()).isEqualTo(12);
+    }
+
     @Test
     public void test_bulk_update() throws IOException {
         Document doc = new org.icij.datashare.text.Document(project("prj"), Paths.get("doc.txt"), "content",
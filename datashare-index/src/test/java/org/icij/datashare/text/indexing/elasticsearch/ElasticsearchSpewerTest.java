@@ -1,10 +1,13 @@
 package org.icij.datashare.text.indexing.elasticsearch;
 
+import org.apache.http.util.EntityUtils;
 import org.apache.tika.metadata.Metadata;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
 import org.elasticsearch.action.get.GetRequest;
 import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.icij.datashare.PropertiesProvider;
@@ -37,7 +40,10 @@ import java.io.Reader;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 
 import static java.nio.file.Paths.get;
 import static org.elasticsearch.action.support.WriteRequest.RefreshPolicy.IMMEDIATE;
@@ -122,6 +128,120 @@ public class ElasticsearchSpewerTest {
         verify(publisher, times(2)).publish(eq(Channel.NLP), any(Message.class));
     }
 
+    @Test
+    public void test_bulk_write_flushes_on_close() throws Exception {
+        Publisher bulkPublisher = Mockito.mock(Publisher.class);
+        ElasticsearchSpewer bulkSpewer = new ElasticsearchSpewer(es.client, new OptimaizeLanguageGuesser(), new FieldNames(),
+                bulkPublisher, new PropertiesProvider(new HashMap<String, String>() {{
+                    put("bulkActions", "10");
+                }})).withIndex(TEST_INDEX);
+        final TikaDocument document = factory.create(get("test-bulk-file.txt"));
+
+        bulkSpewer.write(document, new ParsingReader(new ByteArrayInputStream("test".getBytes())));
+        verify(bulkPublisher, times(0)).publish(eq(Channel.NLP), any(Message.class));
+        bulkSpewer.close();
+
+        GetResponse documentFields = es.client.get(new GetRequest(TEST_INDEX, "doc", document.getId()));
+        assertTrue(documentFields.isExists());
+        ArgumentCaptor<Message> argument = ArgumentCaptor.forClass(Message.class);
+        verify(bulkPublisher).publish(eq(Channel.NLP), argument.capture());
+        assertThat(argument.getValue().content).includes(entry(Field.DOC_ID, document.getId()), entry(Field.R_ID, document.getId()));
+    }
+
+    @Test(timeout = 30000)
+    public void test_bulk_write_does_not_wait_for_a_blocked_publisher() throws Exception {
+        CountDownLatch publisherBlocked = new CountDownLatch(1);
+        List<Message> published = new CopyOnWriteArrayList<>();
+        Publisher blockingPublisher = (channel, message) -> {
+            try {
+                publisherBlocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            published.add(message);
+        };
+        ElasticsearchSpewer bulkSpewer = new ElasticsearchSpewer(es.client, new OptimaizeLanguageGuesser(), new FieldNames(),
+                blockingPublisher, new PropertiesProvider(new HashMap<String, String>() {{
+                    put("bulkActions", "2");
+                }})).withIndex(TEST_INDEX);
+        List<TikaDocument> documents = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            documents.add(factory.create(get("test-blocked-publisher-" + i + ".txt")));
+        }
+
+        for (TikaDocument document : documents) {
+            bulkSpewer.write(document, new ParsingReader(new ByteArrayInputStream("test".getBytes())));
+        }
+        while (!es.client.get(new GetRequest(TEST_INDEX, "doc", documents.get(3).getId())).isExists()) {
+            Thread.sleep(100);
+        }
+        assertThat(published).isEmpty();
+
+        publisherBlocked.countDown();
+        bulkSpewer.close();
+        assertThat(published).hasSize(4);
+    }
+
+    @Test
+    public void test_ingestion_mode_disables_refresh_and_restores_it() throws Exception {
+        ElasticsearchSpewer ingestionSpewer = new ElasticsearchSpewer(es.client, new OptimaizeLanguageGuesser(), new FieldNames(),
+                publisher, new PropertiesProvider(new HashMap<String, String>() {{
+                    put("ingestionMode", "true");
+                    put("refreshInterval", "2s");
+                }})).withIndex(TEST_INDEX);
+
+        ingestionSpewer.startIngestion();
+        assertThat(indexSettings()).contains("\"refresh_interval\":\"-1\"").contains("\"number_of_replicas\":\"0\"");
+
+        ingestionSpewer.endIngestion();
+        assertThat(indexSettings()).contains("\"refresh_interval\":\"2s\"").contains("\"number_of_replicas\":\"1\"");
+    }
+
+    @Test
+    public void test_ingestion_mode_restores_the_settings_of_the_index() throws Exception {
+        ElasticsearchSpewer ingestionSpewer = new ElasticsearchSpewer(es.client, new OptimaizeLanguageGuesser(), new FieldNames(),
+                publisher, new PropertiesProvider(new HashMap<String, String>() {{
+                    put("ingestionMode", "true");
+                }})).withIndex(TEST_INDEX);
+        es.client.indices().putSettings(new UpdateSettingsRequest(TEST_INDEX).settings(Settings.builder()
+                .put("index.refresh_interval", "5s").put("index.number_of_replicas", 0)));
+        try {
+            ingestionSpewer.startIngestion();
+            ingestionSpewer.endIngestion();
+
+            assertThat(indexSettings()).contains("\"refresh_interval\":\"5s\"").contains("\"number_of_replicas\":\"0\"");
+        } finally {
+            es.client.indices().putSettings(new UpdateSettingsRequest(TEST_INDEX).settings(Settings.builder()
+                    .putNull("index.refresh_interval").put("index.number_of_replicas", 1)));
+        }
+    }
+
+    @Test
+    public void test_overlapping_ingestions_restore_the_settings_of_the_index() throws Exception {
+        PropertiesProvider ingestionProperties = new PropertiesProvider(new HashMap<String, String>() {{
+            put("ingestionMode", "true");
+        }});
+        ElasticsearchSpewer first = new ElasticsearchSpewer(es.client, new OptimaizeLanguageGuesser(), new FieldNames(),
+                publisher, ingestionProperties).withIndex(TEST_INDEX);
+        ElasticsearchSpewer second = new ElasticsearchSpewer(es.client, new OptimaizeLanguageGuesser(), new FieldNames(),
+                publisher, ingestionProperties).withIndex(TEST_INDEX);
+        es.client.indices().putSettings(new UpdateSettingsRequest(TEST_INDEX).settings(Settings.builder()
+                .put("index.refresh_interval", "5s")));
+        try {
+            first.startIngestion();
+            second.startIngestion();
+
+            first.endIngestion();
+            assertThat(indexSettings()).contains("\"refresh_interval\":\"-1\"").contains("\"number_of_replicas\":\"0\"");
+
+            second.endIngestion();
+            assertThat(indexSettings()).contains("\"refresh_interval\":\"5s\"").contains("\"number_of_replicas\":\"1\"");
+        } finally {
+            es.client.indices().putSettings(new UpdateSettingsRequest(TEST_INDEX).settings(Settings.builder()
+                    .putNull("index.refresh_interval").put("index.number_of_replicas", 1)));
+        }
+    }
+
     @Test
     public void test_extract_id_should_be_equal_to_datashare_id() throws IOException {
         DocumentFactory tikaFactory = new DocumentFactory().configure(Options.from(new HashMap<String, String>() {{
@@ -154,6 +274,10 @@ public class ElasticsearchSpewerTest {
         assertThat(documentFields_fr.getSourceAsMap()).includes(entry("language", "FRENCH"));
     }
 
+    private String indexSettings() throws IOException {
+        return EntityUtils.toString(es.client.getLowLevelClient().performRequest("GET", TEST_INDEX + "/_settings").getEntity());
+    }
+
     private Map<String, Object> convert(Metadata metadata) {
         Map<String, Object> map = new HashMap<>();
         for (String name: metadata.names()) {
@@ -0,0 +1,56 @@
+package org.icij.datashare.text.indexing.elasticsearch;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class JsonContentStreamTest {
+    @Test
+    public void test_empty_content() throws Exception {
+        assertThat(read(new JsonContentStream(new StringReader(""), 10))).isEqualTo("\"\"");
+        assertThat(read(new JsonContentStream(new StringReader(" \n\t "), 10))).isEqualTo("\"\"");
+    }
+
+    @Test
+    public void test_content_is_trimmed_and_escaped() throws Exception {
+        assertThat(read(new JsonContentStream(new StringReader("\n  a \"quoted\"\ttext\\ \n\n"), 10)))
+                .isEqualTo("\"a \\\"quoted\\\"\\ttext\\\\\"");
+    }
+
+    @Test
+    public void test_content_is_utf8_encoded() throws Exception {
+        assertThat(read(new JsonContentStream(new StringReader("café 😀"), 10))).isEqualTo("\"café 😀\"");
+    }
+
+    @Test
+    public void test_surrogate_pair_across_buffers() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 8191; i++) content.append('a');
+        content.append("😀");
+
+        assertThat(read(new JsonContentStream(new StringReader(content.toString()), 10))).isEqualTo("\"" + content + "\"");
+    }
+
+    @Test
+    public void test_sample_is_bounded() throws Exception {
+        JsonContentStream stream = new JsonContentStream(new StringReader("  hello world  "), 8);
+        read(stream);
+        assertThat(stream.getSample()).isEqualTo("hello wo");
+    }
+
+    private String read(InputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[100];
+        int n;
+        while ((n = stream.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return new String(out.toByteArray(), UTF_8);
+    }
+}
@@ -128,7 +128,7 @@ public final class CorenlpPipeline extends AbstractPipeline {
      * @return
      */
     private Annotations processPipeline(String input, String hash, Language language) throws InterruptedException {
-        Annotations annotations = new Annotations(hash, getType(), language);
+        Annotations annotations = newAnnotations(hash, language);
 
         // CoreNLP annotations data-structure
         edu.stanford.nlp.pipeline.Annotation coreNlpAnnotation = new edu.stanford.nlp.pipeline.Annotation(input);
@@ -154,9 +154,10 @@ public final class CorenlpPipeline extends AbstractPipeline {
             for (CoreLabel token : tokens) {
                 int tokenBegin = token.get(CharacterOffsetBeginAnnotation.class);
                 int tokenEnd = token.get(CharacterOffsetEndAnnotation.class);
-                String pos = token.get(PartOfSpeechAnnotation.class);
                 annotations.add(TOKEN, tokenBegin, tokenEnd);
-                annotations.add(POS, tokenBegin, tokenEnd, pos);
+                if (annotations.retains(POS)) {
+                    annotations.add(POS, tokenBegin, tokenEnd, token.get(PartOfSpeechAnnotation.class));
+                }
 
                 String cat = token.get(NamedEntityTagAnnotation.class);
                 NamedEntity.Category currCat = NamedEntity.Category.parse(cat);
@@ -189,7 +190,7 @@ public final class CorenlpPipeline extends AbstractPipeline {
      * @param language the input language
      */
     private Annotations processNerClassifier(String input, String hash, Language language) throws InterruptedException {
-        Annotations annotations = new Annotations(hash, getType(), language);
+        Annotations annotations = newAnnotations(hash, language);
 
         LOGGER.info("name-finding for " + language.toString());
         // Recognize named entities from input
@@ -226,7 +227,7 @@ public final class CorenlpPipeline extends AbstractPipeline {
      * @param language the input language
      */
     private Annotations processPosClassifier(String input, String hash, Language language) throws InterruptedException {
-        Annotations annotations = new Annotations(hash, getType(), language);
+        Annotations annotations = newAnnotations(hash, language);
         LOGGER.info("POS-tagging for " + language.toString());
 
         // Split input into sentences
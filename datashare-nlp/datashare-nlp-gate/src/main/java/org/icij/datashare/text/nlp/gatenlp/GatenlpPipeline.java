@@ -81,7 +81,7 @@ public final class GatenlpPipeline extends AbstractPipeline {
 
     @Override
     public Annotations process(String content, String docId, Language language) {
-        Annotations annotations = new Annotations(docId, getType(), language);
+        Annotations annotations = newAnnotations(docId, language);
         try {
             // Gate annotated document
             String gateDocName = String.join(".", asList(Document.HASHER.hash(content), "txt"));
@@ -96,7 +96,7 @@ public final class GatenlpPipeline extends AbstractPipeline {
 
             // Feed annotation
             AnnotationSet tokenAnnotationSet = gateDoc.getAnnotationSet(GATE_STAGE_NAME.get(TOKEN));
-            if (tokenAnnotationSet != null) {
+            if (tokenAnnotationSet != null && annotations.retains(TOKEN)) {
                 for (gate.Annotation gateAnnotation : new ArrayList<>(tokenAnnotationSet)) {
                     String word          = gateAnnotation.getFeatures().get("string").toString();
                     int tokenOffsetBegin = gateAnnotation.getStartNode().getOffset().intValue();
@@ -93,7 +93,7 @@ public class IxapipePipeline extends AbstractPipeline {
 
     @Override
     public Annotations process(String content, String docId, Language language) {
-        Annotations annotations = new Annotations(docId, getType(), language);
+        Annotations annotations = newAnnotations(docId, language);
         // KAF document annotated by IXAPIPE annotators
         KAFDocument kafDocument = new KAFDocument(language.toString(), KAF_VERSION);
 
@@ -108,7 +108,8 @@ public class IxapipePipeline extends AbstractPipeline {
             return annotations;
 
         // Feed annotations with tokens and pos
-        for (int s = kafDocument.getFirstSentence(); s <= kafDocument.getNumSentences(); s++) {
+        boolean feedTokens = annotations.retains(TOKEN) || annotations.retains(POS) || annotations.retains(SENTENCE);
+        for (int s = kafDocument.getFirstSentence(); feedTokens && s <= kafDocument.getNumSentences(); s++) {
             List<Term> sentenceTerms = kafDocument.getSentenceTerms(s);
             for (Term term : sentenceTerms) {
                 WF wfBegin = term.getWFs().get(0);
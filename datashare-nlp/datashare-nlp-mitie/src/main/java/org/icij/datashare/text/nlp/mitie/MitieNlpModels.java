@@ -9,19 +9,27 @@ import org.icij.datashare.text.nlp.AbstractModels;
 import org.icij.datashare.text.nlp.Pipeline;
 
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.icij.datashare.text.nlp.NlpStage.NER;
 
+/**
+ * extractions are made concurrently by a pool of extractors per language, that grows up to the pool size
+ * (the NLP parallelism). Each extractor loads its own copy of the model, counted in the size of the loaded model.
+ */
 public final class MitieNlpModels extends AbstractModels<NamedEntityExtractor> {
     private static volatile MitieNlpModels instance;
     private static final Object mutex = new Object();
 
     private final static String VERSION = "0.2";
     public static final String NER_MODEL_NAME = "ner_model.dat";
-    private final Map<Language, StringVector> tagSet = new HashMap<>();
+    private final Map<Language, StringVector> tagSet = new ConcurrentHashMap<>();
+    private final Map<Language, ExtractorPool> pools = new ConcurrentHashMap<>();
+    private volatile int poolSize = 1;
 
     public static MitieNlpModels getInstance() {
         MitieNlpModels local_instance = instance;
@@ -47,28 +55,77 @@ public final class MitieNlpModels extends AbstractModels<NamedEntityExtractor> {
         NamedEntityExtractor namedEntityExtractor = get(language);
 
         if (namedEntityExtractor != null) {
-            Semaphore l = modelLock.get(language);
-            l.acquire(); // TODO : is extractEntities not threadsafe ?
+            ExtractorPool pool = pools.computeIfAbsent(language, l -> new ExtractorPool(namedEntityExtractor));
+            NamedEntityExtractor extractor = pool.borrow(language);
             try {
-                return namedEntityExtractor.extractEntities(tokens);
+                return extractor.extractEntities(tokens);
             } finally {
-                l.release();
+                pool.release(extractor);
             }
         } else {
             return new EntityMentionVector();
         }
     }
 
+    /**
+     * @param poolSize maximum number of extractors per language
+     */
+    public void setPoolSize(int poolSize) {
+        this.poolSize = Math.max(1, poolSize);
+    }
+
+    @Override
+    public void unload(Language language) throws InterruptedException {
+        super.unload(language);
+        pools.remove(language);
+        tagSet.remove(language);
+    }
+
     @Override
     protected String getVersion() {return VERSION;}
 
     public StringVector getTagSet(Language language) {
         if (tagSet.containsKey(language))
             return tagSet.get(language);
-        if (models.containsKey(language)) {
-            tagSet.put(language, models.get(language).getPossibleNerTags());
+        NamedEntityExtractor namedEntityExtractor = models.get(language);
+        if (namedEntityExtractor != null) {
+            tagSet.put(language, namedEntityExtractor.getPossibleNerTags());
             return tagSet.get(language);
         }
         return new StringVector();
     }
+
+    private class ExtractorPool {
+        private final BlockingQueue<NamedEntityExtractor> idle = new LinkedBlockingQueue<>();
+        private final AtomicInteger created = new AtomicInteger(1);
+        private final NamedEntityExtractor first;
+
+        ExtractorPool(NamedEntityExtractor first) {
+            this.first = first;
+            idle.add(first);
+        }
+
+        NamedEntityExtractor borrow(Language language) throws InterruptedException {
+            NamedEntityExtractor extractor = idle.poll();
+            if (extractor != null) {
+                return extractor;
+            }
+            if (created.incrementAndGet() <= poolSize) {
+                try {
+                    LOGGER.info("loading {} extractor #{} for {}", stage, created.get(), language);
+                    NamedEntityExtractor copy = loadModelFile(language, getLoader());
+                    addSize(language, first, estimateSize(language, copy));
+                    return copy;
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.error("cannot load a new extractor for " + language, e);
+                }
+            }
+            created.decrementAndGet();
+            return idle.take();
+        }
+
+        void release(NamedEntityExtractor extractor) {
+            idle.add(extractor);
+        }
+    }
 }
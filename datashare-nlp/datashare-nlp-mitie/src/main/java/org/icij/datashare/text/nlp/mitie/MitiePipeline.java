@@ -6,12 +6,15 @@ import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.text.Language;
 import org.icij.datashare.text.nlp.AbstractPipeline;
 import org.icij.datashare.text.nlp.Annotations;
+import org.icij.datashare.text.nlp.NlpApp;
 import org.icij.datashare.text.nlp.NlpStage;
 import org.icij.datashare.text.nlp.Pipeline;
 
 import java.util.*;
 
+import static java.lang.Integer.parseInt;
 import static java.lang.Math.toIntExact;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
 import static org.icij.datashare.text.Language.ENGLISH;
 import static org.icij.datashare.text.Language.SPANISH;
@@ -24,7 +27,7 @@ import static org.icij.datashare.text.nlp.NlpStage.TOKEN;
  * {@link AbstractPipeline}
  * {@link Type#MITIE}
  * <p>
- * /!\ Library is not thread-safe; hence the synchronization
+ * /!\ extractors are not thread-safe; hence the pool of extractors sized to the NLP parallelism
  * <a href="https://github.com/mit-nlp/MITIE">MIT Information Extraction</a>
  * <p>
  * Created by julien on 9/19/16.
@@ -44,6 +47,8 @@ public class MitiePipeline extends AbstractPipeline {
 
         // TOKEN <-- NER
         stageDependencies.get(NER).add(TOKEN);
+        MitieNlpModels.getInstance().setPoolSize(parseInt(
+                propertiesProvider.get(NlpApp.NLP_PARALLELISM_OPT).orElse("1")));
     }
 
 
@@ -54,7 +59,7 @@ public class MitiePipeline extends AbstractPipeline {
 
     @Override
     public Annotations process(String content, String docId, Language language) {
-        Annotations annotations = new Annotations(docId, getType(), language);
+        Annotations annotations = newAnnotations(docId, language);
 
         // Tokenize input
         LOGGER.info("tokenizing for " + language.toString());
@@ -66,7 +71,7 @@ public class MitiePipeline extends AbstractPipeline {
         }
 
         // Feed annotations
-        for (int i = 0; i < tokens.size(); ++i) {
+        for (int i = 0; annotations.retains(TOKEN) && i < tokens.size(); ++i) {
             TokenIndexPair tokenIndexPair = tokens.get(i);
             int tokenBegin = toIntExact(tokenIndexPair.getIndex());
             int tokenEnd = toIntExact(tokenBegin + tokenIndexPair.getToken().length());
@@ -81,18 +86,15 @@ public class MitiePipeline extends AbstractPipeline {
                 entities = MitieNlpModels.getInstance().extract(tokens, language);
                 // Feed annotations
                 // transform index offset given in bytes of utf-8 representation to chars offset in string
-                byte[] inputBytes = content.getBytes(getEncoding());
+                Utf8Offsets offsets = entities.size() > 0 ? new Utf8Offsets(content) : null;
+                StringVector tagSet = MitieNlpModels.getInstance().getTagSet(language);
                 for (int i = 0; i < entities.size(); ++i) {
                     EntityMention entity = entities.get(i);
                     TokenIndexPair tokenBegin = tokens.get(entity.getStart());
                     TokenIndexPair tokenEnd = tokens.get(entity.getEnd() - 1);
-                    int nerBeginBytes = toIntExact(tokenBegin.getIndex());
-                    int nerEndBytes = toIntExact(tokenEnd.getIndex() + tokenEnd.getToken().length());
-                    final String nerPrefix = new String(inputBytes, 0, nerBeginBytes, getEncoding());
-                    final String nerContent = new String(inputBytes, nerBeginBytes, nerEndBytes - nerBeginBytes, getEncoding());
-                    int nerBegin = nerPrefix.length();
-                    int nerEnd = nerBegin + nerContent.length();
-                    String category = MitieNlpModels.getInstance().getTagSet(language).get(entity.getTag());
+                    int nerBegin = offsets.charOffset(tokenBegin.getIndex());
+                    int nerEnd = offsets.charOffset(tokenEnd.getIndex() + tokenEnd.getToken().getBytes(UTF_8).length);
+                    String category = tagSet.get(entity.getTag());
                     annotations.add(NER, nerBegin, nerEnd, category);
                 }
             } catch (InterruptedException e) {
@@ -0,0 +1,46 @@
+package org.icij.datashare.text.nlp.mitie;
+
+/**
+ * maps offsets in the UTF-8 bytes of a string (as given by String.getBytes) to offsets in its chars.
+ * The index is built in one pass so that mapping all the entities of a document is linear.
+ */
+class Utf8Offsets {
+    private final int[] charOffsets;
+
+    Utf8Offsets(String content) {
+        int size = 0;
+        for (int i = 0; i < content.length(); i++) {
+            int length = byteLength(content, i);
+            size += length;
+            if (length == 4) {
+                i++;
+            }
+        }
+        charOffsets = new int[size + 1];
+        int bytes = 0;
+        for (int i = 0; i < content.length(); i++) {
+            int length = byteLength(content, i);
+            for (int b = 0; b < length; b++) {
+                charOffsets[bytes + b] = i;
+            }
+            bytes += length;
+            if (length == 4) {
+                i++; // low surrogate
+            }
+        }
+        charOffsets[bytes] = content.length();
+    }
+
+    int charOffset(long byteOffset) {
+        return charOffsets[Math.toIntExact(byteOffset)];
+    }
+
+    private static int byteLength(String content, int i) {
+        char c = content.charAt(i);
+        if (c < 0x80) return 1;
+        if (c < 0x800) return 2;
+        if (Character.isHighSurrogate(c) && i + 1 < content.length() && Character.isLowSurrogate(content.charAt(i + 1))) return 4;
+        if (Character.isSurrogate(c)) return 1; // encoded as '?'
+        return 3;
+    }
+}
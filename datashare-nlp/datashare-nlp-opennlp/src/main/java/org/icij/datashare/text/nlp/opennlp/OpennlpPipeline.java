@@ -23,8 +23,8 @@ import org.icij.datashare.text.nlp.Pipeline;
 import org.icij.datashare.text.nlp.opennlp.models.*;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.stream.Stream;
 
 import static java.util.Arrays.asList;
 import static java.util.Arrays.copyOfRange;
@@ -58,10 +58,22 @@ public final class OpennlpPipeline extends AbstractPipeline {
                 put(GERMAN,  new HashSet<>(asList(SENTENCE, TOKEN, POS)));
             }};
 
-    Map<Language, SentenceDetector> sentencer;
-    Map<Language, Tokenizer> tokenizer;
-    Map<Language, POSTagger> posTagger;
-    Map<Language, List<NameFinderME>> nerFinder;
+    // the pipelines are weakly referenced : the registries listeners are static, registered once,
+    // and don't keep the pipelines created for each request or task
+    private static final Set<OpennlpPipeline> pipelines = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+    static {
+        OpenNlpSentenceModels.getInstance().onUnload(language -> forEachPipeline(p -> p.sentencer.remove(language)));
+        OpenNlpTokenModels.getInstance().onUnload(language -> forEachPipeline(p -> p.tokenizer.remove(language)));
+        OpenNlpPosModels.getInstance().onUnload(language -> forEachPipeline(p -> p.posTagger.remove(language)));
+        OpenNlpNerModels.getInstance().onUnload(language -> forEachPipeline(p -> p.nerFinder.remove(language)));
+    }
+
+    // models are shared by the NLP threads, each thread has its own annotators.
+    // They are dropped when the registries unload them and loaded again for the next processed text
+    final ThreadLocalAnnotators<SentenceModel, SentenceDetector> sentencer;
+    final ThreadLocalAnnotators<TokenizerModel, Tokenizer> tokenizer;
+    final ThreadLocalAnnotators<POSModel, POSTagger> posTagger;
+    final ThreadLocalAnnotators<List<TokenNameFinderModel>, List<NameFinderME>> nerFinder;
 
     @Inject
     public OpennlpPipeline(final PropertiesProvider propertiesProvider) {
@@ -72,10 +84,17 @@ public final class OpennlpPipeline extends AbstractPipeline {
         stageDependencies.get(POS)  .add(TOKEN);
         stageDependencies.get(NER)  .add(TOKEN);
 
-        sentencer = new HashMap<>();
-        tokenizer = new HashMap<>();
-        posTagger = new HashMap<>();
-        nerFinder = new HashMap<>();
+        sentencer = new ThreadLocalAnnotators<>(SentenceDetectorME::new);
+        tokenizer = new ThreadLocalAnnotators<>(TokenizerME::new);
+        posTagger = new ThreadLocalAnnotators<>(POSTaggerME::new);
+        nerFinder = new ThreadLocalAnnotators<>(models -> models.stream().map(NameFinderME::new).collect(toList()));
+        pipelines.add(this);
+    }
+
+    private static void forEachPipeline(Consumer<OpennlpPipeline> action) {
+        synchronized (pipelines) {
+            pipelines.forEach(action);
+        }
     }
 
     @Override
@@ -86,6 +105,11 @@ public final class OpennlpPipeline extends AbstractPipeline {
         if (!super.initialize(language)) {
             return false;
         }
+        loadModels(language);
+        return true;
+    }
+
+    private void loadModels(Language language) {
         HashMap<NlpStage, Function<Language, Boolean>> annotatorLoader = new HashMap<NlpStage, Function<Language, Boolean>>() {{
             put(TOKEN, logIfInterrupted(OpennlpPipeline.this::loadTokenizer));
             put(SENTENCE, logIfInterrupted(OpennlpPipeline.this::loadSentenceDetector));
@@ -93,19 +117,20 @@ public final class OpennlpPipeline extends AbstractPipeline {
             put(NER, logIfInterrupted(OpennlpPipeline.this::loadNameFinder));
         }};
         stages.forEach(stage -> annotatorLoader.get(stage).apply(language));
-        return true;
     }
 
     @Override
     public Annotations process(String content, String docId, Language language) {
-        Annotations annotations = new Annotations(docId, getType(), language);
+        Annotations annotations = newAnnotations(docId, language);
         String annotators = "SENTENCING ~ TOKENIZING";
         if (targetStages.contains(POS))
             annotators += " ~ POS-TAGGING";
         if (targetStages.contains(NER))
             annotators += " ~ NAME-FINDING";
         LOGGER.info(annotators + " for " + language);
+        loadModels(language); // models may have been unloaded since initialize
 
+        List<NameFinderME> nameFinders = targetStages.contains(NER) ? nerFinder.get(language) : null;
         // Split input into sentences
         Span[] sentenceSpans = sentences(content, language);
         for (Span sentenceSpan : sentenceSpans) {
@@ -137,8 +162,8 @@ public final class OpennlpPipeline extends AbstractPipeline {
             }
 
             // NER on sentence
-            if (targetStages.contains(NER)) {
-                for (NameFinderME nameFinderME : nerFinder.get(language)) {
+            if (nameFinders != null) {
+                for (NameFinderME nameFinderME : nameFinders) {
                     Span[] nerSpans = nameFinderME.find(sentenceTokens);
                     for (Span nerSpan : nerSpans) {
                         int nerStart = sentenceOffsetBegin + sentenceTokenSpans[nerSpan.getStart()].getStart();
@@ -148,6 +173,9 @@ public final class OpennlpPipeline extends AbstractPipeline {
                 }
             }
         }
+        if (nameFinders != null) {
+            nameFinders.forEach(NameFinderME::clearAdaptiveData); // adaptive data is by document
+        }
         return annotations;
     }
 
@@ -159,10 +187,6 @@ public final class OpennlpPipeline extends AbstractPipeline {
     public void terminate(Language language) throws InterruptedException {
         super.terminate(language);
 
-        if (nerFinder.containsKey(language)) {
-            nerFinder.get(language).forEach(NameFinderME::clearAdaptiveData);
-        }
-
         // (Don't) keep models in memory
         if ( ! caching) {
             sentencer.remove(language);
@@ -192,15 +216,19 @@ public final class OpennlpPipeline extends AbstractPipeline {
         if ( tokenizer.containsKey(language) )
             return true;
         ArtifactProvider model = OpenNlpTokenModels.getInstance().get(language);
-        tokenizer.put(language, new TokenizerME((TokenizerModel) model));
+        if (model == null)
+            return false;
+        tokenizer.put(language, (TokenizerModel) model);
         return true;
     }
 
     private boolean loadSentenceDetector(Language language) throws InterruptedException {
         if (sentencer.containsKey(language))
             return true;
-        ArtifactProvider model = OpenNlpSentenceModels.getInstance().get(language);;
-        sentencer.put(language, new SentenceDetectorME((SentenceModel) model));
+        ArtifactProvider model = OpenNlpSentenceModels.getInstance().get(language);
+        if (model == null)
+            return false;
+        sentencer.put(language, (SentenceModel) model);
         return true;
     }
 
@@ -208,34 +236,41 @@ public final class OpennlpPipeline extends AbstractPipeline {
         if ( posTagger.containsKey(language) )
             return true;
         ArtifactProvider model = OpenNlpPosModels.getInstance().get(language);
-        posTagger.put(language, new POSTaggerME((POSModel) model));
+        if (model == null)
+            return false;
+        posTagger.put(language, (POSModel) model);
         return true;
     }
 
     private boolean loadNameFinder(Language language) throws InterruptedException {
+        if (nerFinder.containsKey(language))
+            return true;
         OpenNlpCompositeModel nerModels = (OpenNlpCompositeModel) OpenNlpNerModels.getInstance().get(language);
-        final Stream<NameFinderME> nameFinderMEStream =
-                nerModels.models.stream().map(m -> new NameFinderME((TokenNameFinderModel) m));
-        nerFinder.put(language, nameFinderMEStream.collect(toList()));
+        if (nerModels == null)
+            return false;
+        nerFinder.put(language, nerModels.models.stream().map(m -> (TokenNameFinderModel) m).collect(toList()));
         return true;
     }
 
     private Span[] sentences(String input, Language language) {
-        if (!stages.contains(SENTENCE) || !sentencer.containsKey(language))
+        SentenceDetector sentenceDetector = stages.contains(SENTENCE) ? sentencer.get(language) : null;
+        if (sentenceDetector == null)
             return new Span[0];
-        return sentencer.get(language).sentPosDetect(input);
+        return sentenceDetector.sentPosDetect(input);
     }
 
     private String[] postag(String[] tokens, Language language) {
-        if (!stages.contains(POS) || !posTagger.containsKey(language))
+        POSTagger tagger = stages.contains(POS) ? posTagger.get(language) : null;
+        if (tagger == null)
             return new String[0];
-        return posTagger.get(language).tag(tokens);
+        return tagger.tag(tokens);
     }
 
     private Span[] tokenize(String input, Language language) {
-        if (!stages.contains(TOKEN) || !tokenizer.containsKey(language))
+        Tokenizer languageTokenizer = stages.contains(TOKEN) ? tokenizer.get(language) : null;
+        if (languageTokenizer == null)
             return new Span[0];
-        return tokenizer.get(language).tokenizePos(input);
+        return languageTokenizer.tokenizePos(input);
     }
 
     @Override
@@ -0,0 +1,53 @@
+package org.icij.datashare.text.nlp.opennlp;
+
+import org.icij.datashare.text.Language;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * opennlp *ME annotators are not thread safe but their models are : the models are shared,
+ * and each thread creates its own annotators from them.
+ *
+ * the annotators of a thread are dropped when their model is removed or replaced.
+ */
+class ThreadLocalAnnotators<M, A> {
+    private final Map<Language, M> models = new ConcurrentHashMap<>();
+    private final Function<M, A> factory;
+    private final ThreadLocal<Map<Language, Annotator<M, A>>> annotators = ThreadLocal.withInitial(() -> new EnumMap<>(Language.class));
+
+    ThreadLocalAnnotators(Function<M, A> factory) {
+        this.factory = factory;
+    }
+
+    boolean containsKey(Language language) { return models.containsKey(language);}
+    Set<Language> keySet() { return models.keySet();}
+    void put(Language language, M model) { models.put(language, model);}
+    void remove(Language language) { models.remove(language);}
+
+    /**
+     * @return the annotator of the current thread for language or null if no model is loaded
+     */
+    A get(Language language) {
+        Map<Language, Annotator<M, A>> threadAnnotators = annotators.get();
+        threadAnnotators.entrySet().removeIf(e -> models.get(e.getKey()) != e.getValue().model);
+        M model = models.get(language);
+        if (model == null) {
+            return null;
+        }
+        return threadAnnotators.computeIfAbsent(language, l -> new Annotator<>(model, factory.apply(model))).annotator;
+    }
+
+    private static class Annotator<M, A> {
+        private final M model;
+        private final A annotator;
+
+        Annotator(M model, A annotator) {
+            this.model = model;
+            this.annotator = annotator;
+        }
+    }
+}
@@ -8,6 +8,7 @@ import org.icij.datashare.text.nlp.Pipeline;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
 
 public abstract class OpenNlpModels extends AbstractModels<ArtifactProvider> {
     static final String VERSION = "1.5";
@@ -26,6 +27,16 @@ public abstract class OpenNlpModels extends AbstractModels<ArtifactProvider> {
         }
      }
 
+    @Override
+    protected long estimateSize(Language language, ArtifactProvider model) {
+        URL resource = getLoader().getResource(getModelPath(language));
+        try {
+            return resource == null ? 0 : Math.max(0, resource.openConnection().getContentLengthLong());
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
     abstract ArtifactProvider createModel (InputStream is) throws IOException;
     abstract String getModelPath (Language languate);
 
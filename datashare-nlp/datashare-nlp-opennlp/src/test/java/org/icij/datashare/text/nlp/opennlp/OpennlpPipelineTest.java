@@ -1,14 +1,19 @@
 package org.icij.datashare.text.nlp.opennlp;
 
+import opennlp.tools.tokenize.Tokenizer;
 import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.text.Language;
 import org.icij.datashare.text.nlp.AbstractModels;
+import org.icij.datashare.text.nlp.opennlp.models.OpenNlpTokenModels;
 import org.junit.Test;
 
+import java.lang.ref.WeakReference;
 import java.util.Properties;
+import java.util.concurrent.Executors;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.icij.datashare.text.nlp.AbstractPipeline.NLP_STAGES_PROP;
+import static org.icij.datashare.text.nlp.NlpStage.TOKEN;
 
 public class OpennlpPipelineTest {
 
@@ -24,4 +29,68 @@ public class OpennlpPipelineTest {
         assertThat(openNlpPipeline.tokenizer.keySet()).contains(Language.FRENCH);
         assertThat(openNlpPipeline.nerFinder.keySet()).excludes(Language.FRENCH);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void test_annotators_are_confined_to_threads() throws Exception {
+        AbstractModels.syncModels(false);
+        Properties props = new Properties();
+        props.setProperty(NLP_STAGES_PROP, "SENTENCE,TOKEN");
+        OpennlpPipeline openNlpPipeline = new OpennlpPipeline(new PropertiesProvider(props));
+        openNlpPipeline.initialize(Language.FRENCH);
+
+        Tokenizer tokenizer = openNlpPipeline.tokenizer.get(Language.FRENCH);
+        Tokenizer otherThreadTokenizer = Executors.newSingleThreadExecutor().submit(() -> openNlpPipeline.tokenizer.get(Language.FRENCH)).get();
+
+        assertThat(tokenizer).isNotNull();
+        assertThat(openNlpPipeline.tokenizer.get(Language.FRENCH)).isSameAs(tokenizer);
+        assertThat(otherThreadTokenizer).isNotNull().isNotSameAs(tokenizer);
+    }
+
+    @Test
+    public void test_annotators_are_dropped_with_their_model() throws Exception {
+        AbstractModels.syncModels(false);
+        Properties props = new Properties();
+        props.setProperty(NLP_STAGES_PROP, "SENTENCE,TOKEN");
+        props.setProperty("caching", "false");
+        OpennlpPipeline openNlpPipeline = new OpennlpPipeline(new PropertiesProvider(props));
+        openNlpPipeline.initialize(Language.FRENCH);
+        assertThat(openNlpPipeline.tokenizer.get(Language.FRENCH)).isNotNull();
+
+        openNlpPipeline.terminate(Language.FRENCH);
+
+        assertThat(openNlpPipeline.tokenizer.get(Language.FRENCH)).isNull();
+    }
+
+    @Test
+    public void test_models_are_dropped_when_unloaded_by_the_registry() throws Exception {
+        AbstractModels.syncModels(false);
+        Properties props = new Properties();
+        props.setProperty(NLP_STAGES_PROP, "SENTENCE,TOKEN");
+        OpennlpPipeline openNlpPipeline = new OpennlpPipeline(new PropertiesProvider(props));
+        openNlpPipeline.initialize(Language.FRENCH);
+
+        OpenNlpTokenModels.getInstance().unload(Language.FRENCH);
+        assertThat(openNlpPipeline.tokenizer.keySet()).excludes(Language.FRENCH);
+
+        assertThat(openNlpPipeline.process("Bonjour le monde.", "docId", Language.FRENCH).size(TOKEN)).isGreaterThan(0);
+        assertThat(openNlpPipeline.tokenizer.keySet()).contains(Language.FRENCH);
+    }
+
+    @Test
+    public void test_pipelines_are_not_retained_by_the_registries() throws Exception {
+        AbstractModels.syncModels(false);
+        Properties props = new Properties();
+        props.setProperty(NLP_STAGES_PROP, "SENTENCE,TOKEN");
+        OpennlpPipeline openNlpPipeline = new OpennlpPipeline(new PropertiesProvider(props));
+        openNlpPipeline.initialize(Language.FRENCH);
+        WeakReference<ThreadLocalAnnotators<?, ?>> reference = new WeakReference<>(openNlpPipeline.tokenizer);
+
+        openNlpPipeline = null;
+        for (int i = 0; i < 10 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertThat(reference.get()).isNull();
+    }
+}
@@ -44,9 +44,14 @@ public class IndexResource {
         this.indexer = indexer;
     }
 
+    /**
+     * creates the user project index. Query parameters can override index settings :
+     * indexShards, indexReplicas, indexCodec and expectedDocuments
+     * (used to compute the shard count when indexShards is not given).
+     */
     @Put("/create")
     public Payload createIndex(Context context) throws IOException {
-        return indexer.createIndex(((User)context.currentUser()).projectName()) ? created() : ok();
+        return indexer.createIndex(((User)context.currentUser()).projectName(), context.query().keyValues()) ? created() : ok();
     }
 
     @Options("/delete/all")
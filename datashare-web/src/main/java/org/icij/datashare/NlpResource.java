@@ -7,6 +7,7 @@ import org.icij.datashare.text.NamedEntity;
 import org.icij.datashare.text.indexing.LanguageGuesser;
 import org.icij.datashare.text.nlp.AbstractPipeline;
 import org.icij.datashare.text.nlp.Annotations;
+import org.icij.datashare.text.nlp.NlpConsumer;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.List;
@@ -28,6 +29,7 @@ public class NlpResource {
     @Post("/ner/findNames/:pipeline")
     public List<NamedEntity> getAnnotations(final String pipeline, String text) throws Exception {
         AbstractPipeline p = createPipeline(pipeline);
+        p.retainStages(NlpConsumer.CONSUMED_STAGES);
         Language language = languageGuesser.guess(text);
         if (p.initialize(language)) {
             Annotations annotations = p.process(text, "inline", language);
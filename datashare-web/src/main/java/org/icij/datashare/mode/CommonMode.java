@@ -12,7 +12,10 @@ import net.codestory.http.routes.Routes;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.icij.datashare.*;
 import org.icij.datashare.com.Publisher;
+import org.icij.datashare.com.memory.MemoryPublisher;
+import org.icij.datashare.com.redis.RedisBatchPublisher;
 import org.icij.datashare.com.redis.RedisPublisher;
+import org.icij.datashare.com.redis.RedisStreamPublisher;
 import org.icij.datashare.text.indexing.Indexer;
 import org.icij.datashare.text.indexing.LanguageGuesser;
 import org.icij.datashare.text.indexing.elasticsearch.ElasticsearchIndexer;
@@ -23,6 +26,8 @@ import java.util.Map;
 import java.util.Properties;
 
 import static com.fasterxml.jackson.databind.DeserializationFeature.ACCEPT_EMPTY_STRING_AS_NULL_OBJECT;
+import static java.lang.Boolean.parseBoolean;
+import static java.lang.Integer.parseInt;
 import static java.util.Optional.ofNullable;
 import static org.icij.datashare.text.indexing.elasticsearch.ElasticsearchConfiguration.createESClient;
 
@@ -67,7 +72,15 @@ public class CommonMode extends AbstractModule {
         bind(Indexer.class).to(ElasticsearchIndexer.class).asEagerSingleton();
         bind(TaskManager.class).toInstance(new TaskManager(propertiesProvider));
         install(new FactoryModuleBuilder().build(TaskFactory.class));
-        bind(Publisher.class).to(RedisPublisher.class);
+        if (parseBoolean(propertiesProvider.get(MemoryPublisher.MEMORY_BUS_OPT).orElse("false"))) {
+            bind(Publisher.class).to(MemoryPublisher.class);
+        } else if (parseBoolean(propertiesProvider.get(RedisStreamPublisher.STREAMS_OPT).orElse("false"))) {
+            bind(Publisher.class).to(RedisStreamPublisher.class);
+        } else if (parseInt(propertiesProvider.get(RedisBatchPublisher.BATCH_SIZE_OPT).orElse("1")) > 1) {
+            bind(Publisher.class).to(RedisBatchPublisher.class);
+        } else {
+            bind(Publisher.class).to(RedisPublisher.class);
+        }
     }
 
     public Configuration createWebConfiguration() {
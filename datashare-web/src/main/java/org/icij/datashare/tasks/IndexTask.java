@@ -41,6 +41,7 @@ public class IndexTask extends DefaultTask<Long> implements Monitorable, UserTas
     private final DocumentQueueDrainer drainer;
     private final DocumentConsumer consumer;
     private final DocumentQueue queue;
+    private final ElasticsearchSpewer spewer;
     private final Publisher publisher;
     private final User user;
     private long totalToProcess;
@@ -53,6 +54,7 @@ public class IndexTask extends DefaultTask<Long> implements Monitorable, UserTas
         this.user = user;
         userOptions.ifPresent("parallelism", o -> o.parse().asInteger()).ifPresent(this::setParallelism);
         this.publisher = publisher;
+        this.spewer = spewer;
         String indexName = user.isNull() ? userOptions.valueIfPresent("projectName").orElse("local-datashare") : user.projectName();
         spewer.withIndex(indexName); // TODO: remove this
         spewer.createIndex();
@@ -71,13 +73,22 @@ public class IndexTask extends DefaultTask<Long> implements Monitorable, UserTas
     @Override
     public Long call() throws Exception {
         logger.info("Processing up to {} file(s) in parallel", parallelism);
-        totalToProcess = drainer.drain().get();
-        drainer.shutdown();
-        drainer.awaitTermination(10, SECONDS); // drain is finished
-        logger.info("drained {} documents. Waiting for consumer to shutdown", totalToProcess);
-        publisher.publish(Channel.NLP, new Message(INIT_MONITORING).add(VALUE, valueOf(totalToProcess)));
-        consumer.shutdown();
-        consumer.awaitTermination(30, MINUTES); // documents could be currently processed
+        spewer.startIngestion();
+        try {
+            totalToProcess = drainer.drain().get();
+            drainer.shutdown();
+            drainer.awaitTermination(10, SECONDS); // drain is finished
+            logger.info("drained {} documents. Waiting for consumer to shutdown", totalToProcess);
+            publisher.publish(Channel.NLP, new Message(INIT_MONITORING).add(VALUE, valueOf(totalToProcess)));
+            consumer.shutdown();
+            consumer.awaitTermination(30, MINUTES); // documents could be currently processed
+        } finally {
+            try {
+                spewer.close(); // flushes pending bulk requests
+            } finally {
+                spewer.endIngestion(); // restores refresh and replicas even if the task failed
+            }
+        }
         publisher.publish(Channel.NLP, new ShutdownMessage());
         queue.close();
         logger.info("exiting");
@@ -17,11 +17,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.stream.Stream;
 
+import static java.lang.Integer.parseInt;
 import static java.lang.String.valueOf;
-import static java.util.stream.Collectors.toList;
 import static org.icij.datashare.text.nlp.Pipeline.Type.parseAll;
 
 public class ResumeNlpTask implements Callable<Long>, UserTask {
@@ -29,6 +29,7 @@ public class ResumeNlpTask implements Callable<Long>, UserTask {
     private final Pipeline.Type[] nlpPipelines;
     private final User user;
     private String projectName;
+    private final int scrollSlices;
     private final Publisher publisher;
     private final Indexer indexer;
 
@@ -39,27 +40,26 @@ public class ResumeNlpTask implements Callable<Long>, UserTask {
         this.nlpPipelines = parseAll(propertiesProvider.get("nlpPipelines").orElse(""));
         this.user = user;
         this.projectName = propertiesProvider.get("projectName").orElse(user.projectName());
+        this.scrollSlices = parseInt(propertiesProvider.get("scrollSlices").orElse("1"));
     }
 
     @Override
     public Long call() throws IOException {
         logger.info("resuming NLP name finding for index {} and {}", projectName, nlpPipelines);
         Indexer.Searcher searcher = indexer.search(projectName, Document.class).withSource("rootDocument").without(nlpPipelines);
-        List<? extends Entity> docsToProcess = searcher.scroll().collect(toList());
-        long totalHits = searcher.totalHits();
-        this.publisher.publish(Channel.NLP, new Message(Message.Type.INIT_MONITORING).add(Message.Field.VALUE, valueOf(totalHits)));
+        long totalHits;
+        try (Stream<? extends Entity> docsToProcess = scrollSlices > 1 ? searcher.scroll(scrollSlices) : searcher.searchAfter()) {
+            totalHits = searcher.totalHits();
+            this.publisher.publish(Channel.NLP, new Message(Message.Type.INIT_MONITORING).add(Message.Field.VALUE, valueOf(totalHits)));
 
-        do {
             docsToProcess.forEach(doc -> this.publisher.publish(Channel.NLP,
                     new Message(Message.Type.EXTRACT_NLP)
                             .add(Message.Field.INDEX_NAME, projectName)
                             .add(Message.Field.DOC_ID, doc.getId())
                             .add(Message.Field.R_ID, ((Document) doc).getRootDocument())));
-            docsToProcess = searcher.scroll().collect(toList());
-        } while (docsToProcess.size() != 0);
+        }
         logger.info("sent {} message for {} files without {} pipeline tags", Message.Type.EXTRACT_NLP, totalHits, nlpPipelines);
 
-        searcher.clearScroll();
         this.publisher.publish(Channel.NLP, new ShutdownMessage());
 
         return totalHits;
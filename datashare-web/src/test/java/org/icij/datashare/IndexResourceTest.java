@@ -95,7 +95,7 @@ public class IndexResourceTest implements FluentRestTest {
     @Test
     public void test_put_create_local_index_in_local_mode() throws Exception {
         put("/api/index/create").should().respond(200);
-        verify(mockIndexer).createIndex("local-datashare");
+        verify(mockIndexer).createIndex("local-datashare", new HashMap<>());
     }
 
     @Test
@@ -104,7 +104,16 @@ public class IndexResourceTest implements FluentRestTest {
             put("elasticsearchAddress", "http://localhost:" + mockElastic.port());
         }}), mockIndexer)).filter(new BasicAuthFilter("/", "icij", HashMapUser.singleUser("cecile"))));
         put("/api/index/create").withPreemptiveAuthentication("cecile", "pass").should().respond(200);
-        verify(mockIndexer).createIndex("cecile-datashare");
+        verify(mockIndexer).createIndex("cecile-datashare", new HashMap<>());
+    }
+
+    @Test
+    public void test_put_create_index_with_settings() throws Exception {
+        put("/api/index/create?indexShards=3&indexCodec=best_compression").should().respond(200);
+        verify(mockIndexer).createIndex("local-datashare", new HashMap<String, String>() {{
+            put("indexShards", "3");
+            put("indexCodec", "best_compression");
+        }});
     }
 
     @Test
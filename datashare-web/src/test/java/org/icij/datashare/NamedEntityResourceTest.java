@@ -67,7 +67,7 @@ public class NamedEntityResourceTest implements FluentRestTest {
         NamedEntity toBeHidden = create(PERSON, "to_update", 123, "docId", CORENLP, FRENCH);
         assertThat(toBeHidden.isHidden()).isFalse();
         Indexer.Searcher searcher = mock(Indexer.Searcher.class);
-        doReturn(Stream.of(toBeHidden)).when(searcher).execute();
+        doReturn(Stream.of(toBeHidden)).when(searcher).searchAfter();
         doReturn(searcher).when(searcher).withFieldValue(any(), any());
         doReturn(searcher).when(indexer).search("local-datashare", NamedEntity.class);
 